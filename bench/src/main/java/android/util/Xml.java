@@ -0,0 +1,12 @@
+package android.util;
+
+import org.kxml2.io.KXmlSerializer;
+import org.xmlpull.v1.XmlSerializer;
+
+/* JVM stand-in for the one android.util.Xml method the protocol core uses.  Android's own
+ * implementation hands out the same kXML serializer. */
+public class Xml {
+	public static XmlSerializer newSerializer() {
+		return new KXmlSerializer();
+	}
+}
@@ -0,0 +1,106 @@
+package com.aregner.pandora.bench;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCScanningSerializer;
+
+import com.aregner.pandora.PandoraRadio;
+import com.aregner.pandora.Song;
+import com.aregner.pandora.Station;
+import com.aregner.pandora.XmlRpc;
+
+/* Captured getFragment and getStations responses all the way to Song and Station objects,
+ * through maps and bound directly. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+	private byte[] fragment;
+	private byte[] stations;
+	private PandoraRadio pandora;
+	private Client client;
+	private IXMLRPCResultReader songs;
+	private IXMLRPCResultReader stationList;
+
+	@Setup
+	public void setup() {
+		fragment = Fixtures.load(Fixtures.GET_FRAGMENT);
+		stations = Fixtures.load(Fixtures.GET_STATIONS);
+		pandora = new PandoraRadio();
+		client = new Client();
+		songs = pandora.getPlaylistReader();
+		stationList = pandora.getStationsReader();
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Song[] fragmentThroughMaps() throws Exception {
+		Object[] result = (Object[]) client.read(fragment, null);
+		Song[] list = new Song[result.length];
+		for(int i=0; i<result.length; i++) {
+			list[i] = new Song((Map<String,Object>) result[i], pandora);
+		}
+		return list;
+	}
+
+	@Benchmark
+	public Object[] fragmentBound() throws Exception {
+		return (Object[]) client.read(fragment, songs);
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Station[] stationsThroughMaps() throws Exception {
+		Object[] result = (Object[]) client.read(stations, null);
+		Station[] list = new Station[result.length];
+		for(int i=0; i<result.length; i++) {
+			list[i] = new Station((Map<String,Object>) result[i], pandora);
+		}
+		return list;
+	}
+
+	@Benchmark
+	public Object[] stationsBound() throws Exception {
+		return (Object[]) client.read(stations, stationList);
+	}
+
+	/* readResponse is protected, a subclass hands it out.  Parses like PandoraRadio does. */
+	static class Client extends XmlRpc {
+		Client() {
+			super("http://localhost/");
+			setSerializer(new XMLRPCScanningSerializer());
+		}
+
+		Object read(byte[] body, IXMLRPCResultReader reader) throws XMLRPCException, IOException, XmlPullParserException {
+			HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+			ByteArrayEntity entity = new ByteArrayEntity(body);
+			entity.setContentType("text/xml");
+			response.setEntity(entity);
+			return readResponse(response, reader);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.aregner.pandora.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aregner.pandora.Blowfish;
+import com.aregner.pandora.CipherEngine;
+import com.aregner.pandora.PandoraKeys;
+
+/* Single block and bulk throughput of the Blowfish engine, plus the legacy char[] adapter. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlowfishBenchmark {
+
+	private Blowfish blowfish;
+	private byte[] block;
+	private byte[] bulk;
+	private char[] chars;
+
+	@Setup
+	public void setup() {
+		PandoraKeys keys = PandoraKeys.getInstance();
+		blowfish = new Blowfish(keys.out_key_p, keys.out_key_s);
+
+		Random random = new Random(42);
+		block = new byte[CipherEngine.BLOCK_SIZE];
+		random.nextBytes(block);
+		bulk = new byte[4096];
+		random.nextBytes(bulk);
+		chars = "<?xml ve".toCharArray();
+	}
+
+	@Benchmark
+	public byte[] encryptBlock() {
+		blowfish.encryptBlock(block, 0);
+		return block;
+	}
+
+	@Benchmark
+	public byte[] decryptBlock() {
+		blowfish.decryptBlock(block, 0);
+		return block;
+	}
+
+	@Benchmark
+	public byte[] encrypt4k() {
+		blowfish.encrypt(bulk, 0, bulk.length);
+		return bulk;
+	}
+
+	@Benchmark
+	public byte[] decrypt4k() {
+		blowfish.decrypt(bulk, 0, bulk.length);
+		return bulk;
+	}
+
+	@Benchmark
+	public long[] legacyEncryptChars() {
+		return blowfish.encrypt(chars);
+	}
+}
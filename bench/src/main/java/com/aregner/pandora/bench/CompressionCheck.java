@@ -0,0 +1,111 @@
+package com.aregner.pandora.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.StringEntity;
+import org.xmlrpc.android.XMLRPCCallStats;
+
+import com.aregner.pandora.XmlRpc;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import static com.aregner.pandora.bench.StandInServer.expect;
+
+/* Serves the same methodResponse plain, gzipped, zlib wrapped and as raw deflate, and checks
+ * each one parses to the same result with the byte counters matching what went over the
+ * wire and what came out of it.
+ *
+ *   java -cp bench/target/benchmarks.jar com.aregner.pandora.bench.CompressionCheck
+ */
+public class CompressionCheck {
+
+	private static final String[] ENCODINGS = { "identity", "gzip", "zlib", "deflate" };
+	private static final int SONGS = 500;
+
+	public static void main(String[] args) throws Exception {
+		final byte[] xml = fragment();
+		final int[] sent = new int[1];
+		final String[] acceptEncoding = new String[1];
+
+		StandInServer server = new StandInServer(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				StandInServer.readBody(exchange);
+				acceptEncoding[0] = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				String encoding = exchange.getRequestURI().getQuery();
+				byte[] body = encode(xml, encoding);
+				if(!encoding.equals("identity")) {
+					// zlib and raw deflate both go by "deflate"
+					exchange.getResponseHeaders().set("Content-Encoding", encoding.equals("gzip") ? "gzip" : "deflate");
+				}
+				sent[0] = body.length;
+				StandInServer.respond(exchange, body);
+			}
+		});
+
+		try {
+			XmlRpc rpc = new XmlRpc(server.getUrl());
+			for(int i=0; i<ENCODINGS.length; i++) {
+				String encoding = ENCODINGS[i];
+				long received = rpc.getBytesReceived();
+				long decoded = rpc.getBytesDecoded();
+				XMLRPCCallStats stats = new XMLRPCCallStats();
+
+				Object result = rpc.callWithRequest(rpc.newRequest(server.getUrl() + "?" + encoding,
+						new StringEntity("<methodCall/>")), null, 5000, stats);
+
+				expect(server.getError() == null, "no error in the server", server.getError());
+				expect("gzip, deflate".equals(acceptEncoding[0]), "Accept-Encoding: gzip, deflate", acceptEncoding[0]);
+				Object[] songs = (Object[]) result;
+				expect(songs.length == SONGS, encoding + ": " + SONGS + " songs", songs.length);
+				Object last = ((Map<?,?>) songs[SONGS-1]).get("songTitle");
+				expect(("Song number " + (SONGS-1)).equals(last), encoding + ": last song parsed", last);
+
+				expect(stats.getResponseBytes() == sent[0], encoding + ": " + sent[0] + " bytes received", stats.getResponseBytes());
+				expect(stats.getDecodedBytes() == xml.length, encoding + ": " + xml.length + " bytes decoded", stats.getDecodedBytes());
+				expect(rpc.getBytesReceived() - received == sent[0], encoding + ": client counted " + sent[0] + " bytes received",
+						rpc.getBytesReceived() - received);
+				expect(rpc.getBytesDecoded() - decoded == xml.length, encoding + ": client counted " + xml.length + " bytes decoded",
+						rpc.getBytesDecoded() - decoded);
+				if(!encoding.equals("identity")) {
+					expect(sent[0] < xml.length / 5, encoding + ": compressed body", sent[0]);
+				}
+				System.out.println(encoding + ": " + sent[0] + " bytes received, " + xml.length + " decoded, ok");
+			}
+		}
+		finally {
+			server.stop();
+		}
+	}
+
+	private static byte[] fragment() throws IOException {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><methodResponse><params><param><value><array><data>");
+		for(int i=0; i<SONGS; i++) {
+			xml.append("<value><struct><member><name>songTitle</name><value><string>Song number ").append(i)
+				.append("</string></value></member></struct></value>");
+		}
+		xml.append("</data></array></value></param></params></methodResponse>\n");
+		return xml.toString().getBytes("UTF-8");
+	}
+
+	private static byte[] encode(byte[] data, String encoding) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		OutputStream out;
+		if(encoding.equals("gzip"))
+			out = new GZIPOutputStream(body);
+		else if(encoding.equals("zlib"))
+			out = new DeflaterOutputStream(body);
+		else if(encoding.equals("deflate"))
+			out = new DeflaterOutputStream(body, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+		else
+			out = body;
+		out.write(data);
+		out.close();
+		return body.toByteArray();
+	}
+}
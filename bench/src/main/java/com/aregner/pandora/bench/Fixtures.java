@@ -0,0 +1,67 @@
+package com.aregner.pandora.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/* Shared helpers for loading the captured responses in src/main/resources. */
+public final class Fixtures {
+
+	public static final String GET_FRAGMENT = "getFragment.xml";
+	public static final String GET_STATIONS = "getStations.xml";
+
+	private Fixtures() {
+	}
+
+	public static byte[] load(String name) {
+		InputStream in = Fixtures.class.getResourceAsStream("/" + name);
+		if(in == null) {
+			throw new IllegalStateException(name + " is missing from the benchmark resources");
+		}
+		try {
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int n;
+				while((n = in.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+				return out.toByteArray();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** Plain ASCII text of the given length, roughly shaped like an XML-RPC body. */
+	public static String text(int length) {
+		String pattern = "<param><value><string>abcdefghijklmnopqrstuvwxyz0123456789</string></value></param>";
+		StringBuilder result = new StringBuilder(length);
+		while(result.length() < length) {
+			result.append(pattern);
+		}
+		result.setLength(length);
+		return result.toString();
+	}
+
+	/** OutputStream that only feeds what it is given to a Blackhole. */
+	public static OutputStream sink(final Blackhole blackhole) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				blackhole.consume(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				blackhole.consume(b);
+				blackhole.consume(len);
+			}
+		};
+	}
+}
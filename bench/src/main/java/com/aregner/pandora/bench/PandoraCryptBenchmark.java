@@ -0,0 +1,69 @@
+package com.aregner.pandora.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aregner.pandora.EncryptedEntity;
+import com.aregner.pandora.PandoraKeys;
+import com.aregner.pandora.PandoraRadio;
+
+/* pandoraEncrypt/pandoraDecrypt and the streaming request entity across payload sizes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PandoraCryptBenchmark {
+
+	@Param({"64", "1024", "16384", "131072"})
+	public int size;
+
+	private PandoraRadio pandora;
+	private String plain;
+	private byte[] plainBytes;
+	private String cipherHex;
+	private byte[] decrypted;
+
+	@Setup
+	public void setup() throws IOException {
+		pandora = new PandoraRadio();
+		plain = Fixtures.text(size);
+		plainBytes = plain.getBytes("UTF-8");
+		cipherHex = pandora.pandoraEncrypt(plain);
+		decrypted = new byte[PandoraRadio.decryptedCapacity(cipherHex.length())];
+	}
+
+	@Benchmark
+	public String pandoraEncrypt() {
+		return pandora.pandoraEncrypt(plain);
+	}
+
+	@Benchmark
+	public String pandoraDecrypt() {
+		return pandora.pandoraDecrypt(cipherHex);
+	}
+
+	@Benchmark
+	public int pandoraDecryptIntoBuffer() {
+		return pandora.pandoraDecrypt(cipherHex, 0, cipherHex.length(), decrypted, 0);
+	}
+
+	@Benchmark
+	public void encryptedEntity(Blackhole blackhole) throws IOException {
+		new EncryptedEntity(PandoraKeys.getInstance().newEncryptor(), plainBytes).writeTo(Fixtures.sink(blackhole));
+	}
+}
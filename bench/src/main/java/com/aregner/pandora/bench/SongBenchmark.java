@@ -0,0 +1,75 @@
+package com.aregner.pandora.bench;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aregner.pandora.PandoraRadio;
+import com.aregner.pandora.Song;
+import com.aregner.pandora.Station;
+
+/* Building Song and Station objects from deserialized structs, including the audio URL decrypt. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SongBenchmark {
+
+	private PandoraRadio pandora;
+	private HashMap<String, Object> song;
+	private HashMap<String, Object> station;
+
+	@Setup
+	public void setup() {
+		pandora = new PandoraRadio();
+
+		// the last 48 characters of the url are 24 encrypted bytes, which real responses
+		// fill with the access token part of the url
+		String token = pandora.pandoraEncrypt("abcdef0123456789?token=1");
+		song = new HashMap<String, Object>();
+		song.put("albumTitle", "Some Album");
+		song.put("artistSummary", "Some Artist");
+		song.put("artistMusicId", "R123456");
+		song.put("audioURL", "http://audio-sjl-t1-1.pandora.com/access/1234567890?version=4&lid=123456789&token=" + token);
+		song.put("fileGain", "-4.25");
+		song.put("identity", "1d2e3f4a5b6c7d8e9f0a1b2c3d4e5f6a");
+		song.put("musicId", "S2938471");
+		song.put("rating", Integer.valueOf(0));
+		song.put("stationId", "412345678901234567");
+		song.put("songTitle", "Some Song");
+		song.put("userSeed", "S2938471");
+		song.put("songDetailURL", "http://www.pandora.com/music/song/some+artist/some+song");
+		song.put("albumDetailURL", "http://www.pandora.com/music/album/some+artist/some+album");
+		song.put("artRadio", "http://images-sjl-1.pandora.com/images/public/amz/9/2/3/4/800014329_130W_130H.jpg");
+		song.put("songType", Integer.valueOf(0));
+
+		station = new HashMap<String, Object>();
+		station.put("stationId", "412345678901234567");
+		station.put("stationIdToken", "412345678901234567ab12");
+		station.put("isCreator", Boolean.TRUE);
+		station.put("isQuickMix", Boolean.FALSE);
+		station.put("stationName", "Some Artist Radio");
+	}
+
+	@Benchmark
+	public Song song() {
+		return new Song(song, pandora);
+	}
+
+	@Benchmark
+	public Station station() {
+		return new Station(station, pandora);
+	}
+}
@@ -0,0 +1,74 @@
+package com.aregner.pandora.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* A local HTTP server standing in for pandora.com in the checks, on a free loopback port.
+ * The handler answers every request; a handler that throws answers 500, with the error
+ * kept for the check to report. */
+public class StandInServer {
+
+	private final HttpServer server;
+	private volatile Throwable error;
+
+	public StandInServer(final HttpHandler handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					handler.handle(exchange);
+				}
+				catch(Throwable e) {
+					error = e;
+					exchange.sendResponseHeaders(500, -1);
+				}
+				finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	/** Base url of the server, with a trailing slash. */
+	public String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	/** The first thing a handler threw, null if none did. */
+	public Throwable getError() {
+		return error;
+	}
+
+	public void stop() {
+		server.stop(0);
+	}
+
+	public static byte[] readBody(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for(int n; (n = in.read(buffer)) != -1; ) {
+			body.write(buffer, 0, n);
+		}
+		return body.toByteArray();
+	}
+
+	public static void respond(HttpExchange exchange, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(200, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	/** Fails the check with what was expected, and what there was instead. */
+	public static void expect(boolean ok, String what, Object actual) {
+		if(!ok) {
+			throw new AssertionError(what + ", got " + actual);
+		}
+	}
+}
@@ -0,0 +1,387 @@
+package com.aregner.pandora.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.aregner.pandora.BlowfishHexOutputStream;
+import com.aregner.pandora.CipherEngine;
+import com.aregner.pandora.CipherEngines;
+import com.aregner.pandora.Hex;
+import com.aregner.pandora.JsonTransport;
+import com.aregner.pandora.PandoraKeys;
+import com.aregner.pandora.PandoraRadio;
+import com.aregner.pandora.Song;
+import com.aregner.pandora.Station;
+import com.aregner.pandora.XmlRpcTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import static com.aregner.pandora.bench.StandInServer.expect;
+
+/* Drives PandoraRadio over XmlRpcTransport and over JsonTransport, each against a local server
+ * standing in for its API with the same stations and songs: sign in, station list, playlist
+ * and feedback.  Both have to end up with the same Stations and Songs, and the servers check
+ * the requests are encrypted, signed and addressed the way the real ones want them.
+ *
+ *   java -cp bench/target/benchmarks.jar com.aregner.pandora.bench.TransportCheck
+ */
+public class TransportCheck {
+
+	private static final String USER = "listener@example.com";
+	private static final String PASSWORD = "secret";
+
+	// the catalogue both stand-ins serve
+	private static final String[][] STATIONS = {
+		// id, token, name, quickmix
+		{ "200", "T200", "Zeta Radio", "false" },
+		{ "100", "T100", "Alpha Radio", "true" },
+	};
+	private static final String[][] SONGS = {
+		// title, artist, album, audio url, art
+		{ "First Song", "Some Artist", "An Album", "http://audio.example.com/access/1?token=abcdefghijklmnopqrstuvwx", "http://art.example.com/1.jpg" },
+		{ "Second Song", "Other Artist", "B Album", "http://audio.example.com/access/2?token=0123456789ABCDEFGHIJKLMN", "http://art.example.com/2.jpg" },
+	};
+
+	public static void main(String[] args) throws Exception {
+		// calls the servers saw, written on their threads
+		List<String> xmlLog = Collections.synchronizedList(new ArrayList<String>());
+		StandInServer xml = new StandInServer(new XmlRpcStandIn(xmlLog));
+		List<String> jsonLog = Collections.synchronizedList(new ArrayList<String>());
+		StandInServer json = new StandInServer(new JsonStandIn(jsonLog));
+		try {
+			PandoraRadio pandora = new PandoraRadio();
+			pandora.setTransport(new XmlRpcTransport(pandora, xml.getUrl() + "?"));
+			drive("xml-rpc", pandora, xml, xmlLog, "station.addFeedback 200 " + XmlRpcStandIn.musicId(0) + " true");
+
+			pandora = new PandoraRadio();
+			pandora.setTransport(new JsonTransport(pandora, json.getUrl(), JsonTransport.Partner.ANDROID));
+			drive("json", pandora, json, jsonLog, "station.addFeedback T200 " + JsonStandIn.trackToken(0) + " true");
+
+			checkJsonStationTokens(json, jsonLog);
+		}
+		finally {
+			xml.stop();
+			json.stop();
+		}
+	}
+
+	private static void drive(String name, PandoraRadio pandora, StandInServer server, List<String> log, String feedback) {
+		expect(!pandora.isAlive(), name + ": not signed in yet", "signed in");
+		pandora.connect(USER, PASSWORD);
+		expect(server.getError() == null, name + ": no error in the server", server.getError());
+		expect(pandora.isAlive(), name + ": signed in", "not signed in");
+
+		ArrayList<Station> stations = pandora.getStations();
+		expect(stations != null && stations.size() == STATIONS.length, name + ": " + STATIONS.length + " stations", stations);
+		// sorted by name
+		for(int s=0; s<STATIONS.length; s++) {
+			String[] expected = STATIONS[STATIONS.length - 1 - s];
+			Station station = stations.get(s);
+			expect(station.getStationId().equals(expected[0]) && station.getName().equals(expected[2])
+					&& station.isQuickMix() == Boolean.parseBoolean(expected[3]),
+					name + ": station " + expected[2], station.getStationId() + " " + station.getName());
+		}
+
+		Station station = pandora.getStationById(200);
+		Song[] songs = station.getPlaylist(PandoraRadio.DEFAULT_AUDIO_FORMAT);
+		expect(server.getError() == null, name + ": no error in the server", server.getError());
+		expect(songs != null && songs.length == SONGS.length, name + ": " + SONGS.length + " songs", songs);
+		for(int i=0; i<SONGS.length; i++) {
+			Song song = songs[i];
+			expect(song.getTitle().equals(SONGS[i][0]) && song.getArtist().equals(SONGS[i][1])
+					&& song.getAlbum().equals(SONGS[i][2]), name + ": song " + SONGS[i][0], song.getTitle());
+			expect(song.getAudioUrl().equals(SONGS[i][3]), name + ": audio url " + SONGS[i][3], song.getAudioUrl());
+			expect(song.getAlbumCoverUrl().equals(SONGS[i][4]), name + ": art " + SONGS[i][4], song.getAlbumCoverUrl());
+		}
+
+		pandora.rate(station, songs[0], true);
+		expect(server.getError() == null, name + ": no error in the server", server.getError());
+		expect(log.contains(feedback), name + ": " + feedback, log);
+
+		System.out.println(name + ": signed in, " + stations.size() + " stations, " + songs.length + " songs, feedback sent, ok");
+	}
+
+	/* Stations read back from the cache never went through the transport: their tokens are
+	 * looked up again, and a station that isn't in the list is never asked for. */
+	private static void checkJsonStationTokens(StandInServer server, List<String> log) {
+		PandoraRadio pandora = new PandoraRadio();
+		pandora.setTransport(new JsonTransport(pandora, server.getUrl(), JsonTransport.Partner.ANDROID));
+		pandora.connect(USER, PASSWORD);
+		log.clear();
+
+		Song[] songs = cachedStation(pandora, "200").getPlaylist(PandoraRadio.DEFAULT_AUDIO_FORMAT);
+		expect(songs != null && songs.length == SONGS.length, "json: playlist of a cached station", songs);
+		expect(log.contains("user.getStationList") && log.contains("station.getPlaylist T200"),
+				"json: tokens fetched before the playlist", log);
+
+		log.clear();
+		songs = cachedStation(pandora, "999").getPlaylist(PandoraRadio.DEFAULT_AUDIO_FORMAT);
+		expect(songs == null, "json: no playlist for an unknown station", songs);
+		expect(!log.toString().contains("station.getPlaylist"), "json: unknown station never sent", log);
+		expect(server.getError() == null, "json: no error in the server", server.getError());
+
+		System.out.println("json: station tokens looked up for cached stations, ok");
+	}
+
+	private static Station cachedStation(PandoraRadio pandora, String id) {
+		Map<String,Object> d = new HashMap<String,Object>();
+		d.put("stationId", id);
+		d.put("stationIdToken", id);
+		d.put("isCreator", Boolean.TRUE);
+		d.put("isQuickMix", Boolean.FALSE);
+		d.put("stationName", "Cached");
+		return new Station(d, pandora);
+	}
+
+	/* Hex of text encrypted with engine, the way both APIs encrypt. */
+	static String encrypt(CipherEngine engine, byte[] text) throws IOException {
+		ByteArrayOutputStream hex = new ByteArrayOutputStream();
+		BlowfishHexOutputStream out = new BlowfishHexOutputStream(hex, engine);
+		out.write(text, 0, text.length);
+		out.finish();
+		return hex.toString("US-ASCII");
+	}
+
+	static String decrypt(CipherEngine engine, byte[] hex) throws IOException {
+		String text = new String(hex, "US-ASCII");
+		byte[] plain = new byte[text.length() / 2];
+		Hex.decode(text, 0, text.length(), plain, 0);
+		engine.decrypt(plain, 0, plain.length);
+		return new String(plain, "UTF-8").trim();
+	}
+
+	static Map<String,String> query(HttpExchange exchange) throws IOException {
+		Map<String,String> query = new HashMap<String,String>();
+		String raw = exchange.getRequestURI().getRawQuery();
+		if(raw != null) {
+			String[] pairs = raw.split("&");
+			for(int i=0; i<pairs.length; i++) {
+				String[] pair = pairs[i].split("=", 2);
+				query.put(pair[0], pair.length > 1 ? URLDecoder.decode(pair[1], "UTF-8") : "");
+			}
+		}
+		return query;
+	}
+
+	/* XML-RPC v32: bodies encrypted with the out keys, audio urls with the in keys. */
+	static class XmlRpcStandIn implements HttpHandler {
+		private static final String AUTH_TOKEN = "xmlAuthToken42";
+		private final CipherEngine requests = PandoraKeys.getInstance().newEncryptor();
+		private final CipherEngine urls = PandoraKeys.getInstance().newDecryptor();
+		private final List<String> log;
+
+		XmlRpcStandIn(List<String> log) {
+			this.log = log;
+		}
+
+		static String musicId(int song) {
+			return "music" + song;
+		}
+
+		public void handle(HttpExchange exchange) throws IOException {
+			expect(Arrays.asList("text/xml").equals(exchange.getRequestHeaders().get("Content-Type")),
+					"xml-rpc: content type text/xml", exchange.getRequestHeaders().get("Content-Type"));
+			Map<String,String> query = query(exchange);
+			String body = decrypt(requests, StandInServer.readBody(exchange));
+			String method = between(body, "<methodName>", "</methodName>");
+			expect(query.get("method").equals(method.substring(method.lastIndexOf('.') + 1)),
+					"xml-rpc: method in the query", query.get("method"));
+
+			List<String> params = params(body);
+			StringBuilder result = new StringBuilder();
+			if(method.equals("listener.authenticateListener")) {
+				expect(params.get(1).equals(USER) && params.get(2).equals(PASSWORD), "xml-rpc: credentials", params);
+				result.append("<struct>").append(member("authToken", string(AUTH_TOKEN)))
+					.append(member("webAuthToken", string("web"))).append("</struct>");
+			}
+			else {
+				expect(params.get(1).equals(AUTH_TOKEN), "xml-rpc: auth token after the timestamp", params);
+				if(method.equals("station.getStations")) {
+					result.append("<array><data>");
+					for(int s=0; s<STATIONS.length; s++) {
+						result.append("<value><struct>").append(member("stationId", string(STATIONS[s][0])))
+							.append(member("stationIdToken", string(STATIONS[s][1])))
+							.append(member("isCreator", "<boolean>1</boolean>"))
+							.append(member("isQuickMix", "<boolean>" + (STATIONS[s][3].equals("true") ? 1 : 0) + "</boolean>"))
+							.append(member("stationName", string(STATIONS[s][2]))).append("</struct></value>");
+					}
+					result.append("</data></array>");
+				}
+				else if(method.equals("playlist.getFragment")) {
+					expect(params.get(2).equals("200"), "xml-rpc: station id", params);
+					result.append("<array><data>");
+					for(int i=0; i<SONGS.length; i++) {
+						// the last 24 characters of the url go out as 48 encrypted hex digits
+						String url = SONGS[i][3];
+						String audioUrl = url.substring(0, url.length() - 24)
+								+ encrypt(urls, url.substring(url.length() - 24).getBytes("UTF-8"));
+						result.append("<value><struct>").append(member("songTitle", string(SONGS[i][0])))
+							.append(member("artistSummary", string(SONGS[i][1])))
+							.append(member("albumTitle", string(SONGS[i][2])))
+							.append(member("audioURL", string(audioUrl)))
+							.append(member("artRadio", string(SONGS[i][4])))
+							.append(member("musicId", string(musicId(i))))
+							.append(member("userSeed", string("seed")))
+							.append(member("songType", "<int>0</int>"))
+							.append(member("rating", "<int>0</int>")).append("</struct></value>");
+					}
+					result.append("</data></array>");
+				}
+				else if(method.equals("station.addFeedback")) {
+					log.add(method + " " + params.get(2) + " " + params.get(3) + " " + params.get(6));
+					result.append("<boolean>1</boolean>");
+				}
+				else {
+					throw new AssertionError("xml-rpc: unexpected call " + method);
+				}
+			}
+			StandInServer.respond(exchange, ("<?xml version=\"1.0\"?><methodResponse><params><param><value>"
+					+ result + "</value></param></params></methodResponse>").getBytes("UTF-8"));
+		}
+
+		/* Values of the params, as text; booleans as true and false. */
+		private static List<String> params(String body) {
+			List<String> params = new ArrayList<String>();
+			int at = 0;
+			while((at = body.indexOf("<param><value>", at)) >= 0) {
+				at += "<param><value>".length();
+				String value = body.substring(at, body.indexOf("</value></param>", at));
+				if(value.startsWith("<boolean>"))
+					value = between(value, "<boolean>", "</boolean>").equals("1") ? "true" : "false";
+				else if(value.startsWith("<"))
+					value = value.substring(value.indexOf('>') + 1, value.lastIndexOf('<'));
+				params.add(value);
+			}
+			return params;
+		}
+
+		private static String between(String s, String start, String end) {
+			int from = s.indexOf(start) + start.length();
+			return s.substring(from, s.indexOf(end, from));
+		}
+
+		private static String member(String name, String value) {
+			return "<member><name>" + name + "</name><value>" + value + "</value></member>";
+		}
+
+		private static String string(String value) {
+			return "<string>" + value + "</string>";
+		}
+	}
+
+	/* JSON v5: partner login in the clear, everything after it encrypted with the partner key
+	 * and carrying the session and the server's clock. */
+	static class JsonStandIn implements HttpHandler {
+		private static final String PARTNER_ID = "42";
+		private static final String PARTNER_TOKEN = "partner+token/=";
+		private static final String USER_ID = "7";
+		private static final String USER_TOKEN = "user+token/1";
+		// the server's clock runs this far ahead
+		private static final long CLOCK_OFFSET = 1000;
+
+		private final CipherEngine requests = CipherEngines.forKey("6#26FRL$ZWD".getBytes());
+		private final CipherEngine responses = CipherEngines.forKey("R=U!LH$O2B#".getBytes());
+		private final List<String> log;
+
+		JsonStandIn(List<String> log) {
+			this.log = log;
+		}
+
+		static String trackToken(int song) {
+			return "track" + song;
+		}
+
+		public void handle(HttpExchange exchange) throws IOException {
+			expect(Arrays.asList("text/plain").equals(exchange.getRequestHeaders().get("Content-Type")),
+					"json: content type text/plain", exchange.getRequestHeaders().get("Content-Type"));
+			try {
+				StandInServer.respond(exchange, handle(query(exchange), StandInServer.readBody(exchange)).toString().getBytes("UTF-8"));
+			} catch (JSONException e) {
+				throw new IOException(e);
+			}
+		}
+
+		private JSONObject handle(Map<String,String> query, byte[] body) throws IOException, JSONException {
+			String method = query.get("method");
+			JSONObject result = new JSONObject();
+			if(method.equals("auth.partnerLogin")) {
+				JSONObject request = new JSONObject(new String(body, "UTF-8"));
+				expect(request.getString("username").equals("android") && request.getString("version").equals("5"),
+						"json: partner login", request);
+				long now = System.currentTimeMillis() / 1000L + CLOCK_OFFSET;
+				result.put("partnerId", PARTNER_ID).put("partnerAuthToken", PARTNER_TOKEN)
+					.put("syncTime", encrypt(responses, ("ñîçé" + now).getBytes("ISO-8859-1")));
+				return ok(result);
+			}
+
+			JSONObject request = new JSONObject(decrypt(requests, body));
+			long syncTime = request.getLong("syncTime");
+			long now = System.currentTimeMillis() / 1000L + CLOCK_OFFSET;
+			expect(Math.abs(syncTime - now) <= 2, "json: syncTime on the server's clock", syncTime - now);
+
+			if(method.equals("auth.userLogin")) {
+				expect(PARTNER_TOKEN.equals(query.get("auth_token")) && PARTNER_ID.equals(query.get("partner_id"))
+						&& request.getString("partnerAuthToken").equals(PARTNER_TOKEN), "json: partner session", query);
+				if(!request.getString("username").equals(USER) || !request.getString("password").equals(PASSWORD)) {
+					return new JSONObject().put("stat", "fail").put("message", "INVALID_LOGIN").put("code", 1002);
+				}
+				return ok(result.put("userId", USER_ID).put("userAuthToken", USER_TOKEN));
+			}
+
+			expect(USER_TOKEN.equals(query.get("auth_token")) && USER_ID.equals(query.get("user_id"))
+					&& PARTNER_ID.equals(query.get("partner_id")) && request.getString("userAuthToken").equals(USER_TOKEN),
+					"json: user session", query);
+			if(method.equals("user.getStationList")) {
+				log.add(method);
+				JSONArray stations = new JSONArray();
+				for(int s=0; s<STATIONS.length; s++) {
+					stations.put(new JSONObject().put("stationId", STATIONS[s][0]).put("stationToken", STATIONS[s][1])
+						.put("stationName", STATIONS[s][2]).put("isQuickMix", Boolean.parseBoolean(STATIONS[s][3]))
+						.put("isShared", false));
+				}
+				result.put("stations", stations);
+			}
+			else if(method.equals("station.getPlaylist")) {
+				String token = request.getString("stationToken");
+				log.add(method + " " + token);
+				if(!token.equals("T200")) {
+					return new JSONObject().put("stat", "fail").put("message", "INVALID_STATION").put("code", 1006);
+				}
+				// ads come first and carry nothing else
+				JSONArray items = new JSONArray().put(new JSONObject().put("adToken", "ad"));
+				for(int i=0; i<SONGS.length; i++) {
+					items.put(new JSONObject().put("trackToken", trackToken(i)).put("songName", SONGS[i][0])
+						.put("artistName", SONGS[i][1]).put("albumName", SONGS[i][2]).put("albumArtUrl", SONGS[i][4])
+						.put("songRating", 0).put("trackGain", "0.0").put("stationId", "200")
+						.put("audioUrlMap", new JSONObject()
+							.put("lowQuality", new JSONObject().put("audioUrl", SONGS[i][3]))
+							.put("highQuality", new JSONObject().put("audioUrl", SONGS[i][3] + "&hifi"))));
+				}
+				result.put("items", items);
+			}
+			else if(method.equals("station.addFeedback")) {
+				log.add(method + " " + request.getString("stationToken") + " " + request.getString("trackToken")
+						+ " " + request.getBoolean("isPositive"));
+			}
+			else {
+				throw new AssertionError("json: unexpected call " + method);
+			}
+			return ok(result);
+		}
+
+		private static JSONObject ok(JSONObject result) throws JSONException {
+			return new JSONObject().put("stat", "ok").put("result", result);
+		}
+	}
+}
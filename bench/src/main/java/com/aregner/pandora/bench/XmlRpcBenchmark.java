@@ -0,0 +1,91 @@
+package com.aregner.pandora.bench;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aregner.pandora.RpcCall;
+import com.aregner.pandora.XmlRpc;
+import com.aregner.pandora.XmlRpcRequestWriter;
+
+/* Rendering request bodies for the two most frequent calls. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlRpcBenchmark {
+
+	private Vector<Object> fragmentArgs;
+	private Vector<Object> feedbackArgs;
+	private RpcCall feedbackCall;
+	private XmlRpcRequestWriter writer;
+
+	@Setup
+	public void setup() {
+		// what xmlrpcCall() ends up with after adding the timestamp and auth token
+		fragmentArgs = new Vector<Object>();
+		fragmentArgs.add(Long.valueOf(1318000000L));
+		fragmentArgs.add("S1234567ab12cd34ef56ab78cd90ef12");
+		fragmentArgs.add("412345678901234567");
+		fragmentArgs.add("0");
+		fragmentArgs.add("");
+		fragmentArgs.add("");
+		fragmentArgs.add("aacplus");
+		fragmentArgs.add("0");
+		fragmentArgs.add("0");
+
+		feedbackArgs = new Vector<Object>();
+		feedbackArgs.add(Long.valueOf(1318000000L));
+		feedbackArgs.add("S1234567ab12cd34ef56ab78cd90ef12");
+		feedbackArgs.add("412345678901234567");
+		feedbackArgs.add("S2938471");
+		feedbackArgs.add("User & Seed <1>");
+		feedbackArgs.add("");
+		feedbackArgs.add(Boolean.TRUE);
+		feedbackArgs.add(Boolean.FALSE);
+		feedbackArgs.add(Integer.valueOf(0));
+
+		feedbackCall = RpcCall.builder("station.addFeedback")
+			.add("412345678901234567").add("S2938471").add("User & Seed <1>").add("")
+			.add(true).add(false).add(0).build();
+		writer = new XmlRpcRequestWriter();
+	}
+
+	@Benchmark
+	public String makeCallGetFragment() {
+		return XmlRpc.makeCall("playlist.getFragment", fragmentArgs);
+	}
+
+	@Benchmark
+	public String makeCallAddFeedback() {
+		return XmlRpc.makeCall("station.addFeedback", feedbackArgs);
+	}
+
+	/* body and query string together, the way PandoraRadio sends a call */
+	@Benchmark
+	public String renderAddFeedback() {
+		StringBuilder url = new StringBuilder(96);
+		return feedbackCall.render(1318000000L, "S1234567ab12cd34ef56ab78cd90ef12", "0001234P", url) + url;
+	}
+
+	/* straight into a reused UTF-8 buffer, what actually goes to the cipher */
+	@Benchmark
+	public int writeAddFeedback() {
+		StringBuilder url = new StringBuilder(96);
+		writer.reset();
+		feedbackCall.render(1318000000L, "S1234567ab12cd34ef56ab78cd90ef12", "0001234P", url, writer);
+		return writer.length() + url.length();
+	}
+}
@@ -0,0 +1,154 @@
+package org.xmlrpc.android.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.kxml2.io.KXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlrpc.android.IXMLRPCSerializer;
+import org.xmlrpc.android.XMLRPCClient;
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCScanningSerializer;
+
+import com.aregner.pandora.bench.Fixtures;
+
+/* XMLRPCSerializer.deserialize on captured getFragment and getStations responses with kXML
+ * and with XMLRPCScanner, and the whole of XMLRPCClient.readResponse with its pooled parser
+ * against a factory lookup per response. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeserializeBenchmark {
+
+	private byte[] fragment;
+	private byte[] stations;
+	private IXMLRPCSerializer serializer;
+	private Client client;
+	private XMLRPCScanningSerializer scanning;
+	private XmlPullParser scanner;
+	private byte[] blob;
+
+	@Setup
+	public void setup() {
+		fragment = Fixtures.load(Fixtures.GET_FRAGMENT);
+		stations = Fixtures.load(Fixtures.GET_STATIONS);
+		client = new Client();
+		serializer = client.serializer();
+		scanning = new XMLRPCScanningSerializer();
+		scanner = scanning.newPullParser();
+		blob = base64Response(256 * 1024);
+	}
+
+	@Benchmark
+	public Object getFragment() throws XmlPullParserException, IOException {
+		return deserialize(fragment);
+	}
+
+	@Benchmark
+	public Object getStations() throws XmlPullParserException, IOException {
+		return deserialize(stations);
+	}
+
+	@Benchmark
+	public Object getFragmentScanner() throws XmlPullParserException, IOException {
+		return deserialize(scanner, scanning, fragment);
+	}
+
+	@Benchmark
+	public Object getStationsScanner() throws XmlPullParserException, IOException {
+		return deserialize(scanner, scanning, stations);
+	}
+
+	@Benchmark
+	public Object readResponseGetFragment() throws XMLRPCException, XmlPullParserException, IOException {
+		return client.readResponse(response(fragment));
+	}
+
+	/* a 256K binary value in 76 character lines */
+	@Benchmark
+	public Object base64() throws XmlPullParserException, IOException {
+		return deserialize(blob);
+	}
+
+	@Benchmark
+	public Object base64Scanner() throws XmlPullParserException, IOException {
+		return deserialize(scanner, scanning, blob);
+	}
+
+	/* what every response used to pay before the parser was reused */
+	@Benchmark
+	public Object factoryPerResponseGetFragment() throws XmlPullParserException, IOException {
+		XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+		return deserialize(parser, serializer, fragment);
+	}
+
+	private static HttpResponse response(byte[] body) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+		ByteArrayEntity entity = new ByteArrayEntity(body);
+		entity.setContentType("text/xml");
+		response.setEntity(entity);
+		return response;
+	}
+
+	private static byte[] base64Response(int size) {
+		byte[] data = new byte[size];
+		new java.util.Random(1).nextBytes(data);
+		StringBuilder xml = new StringBuilder("<methodResponse><params><param><value><base64>");
+		String encoded = java.util.Base64.getEncoder().encodeToString(data);
+		for (int i = 0; i < encoded.length(); i += 76) {
+			xml.append(encoded, i, Math.min(i + 76, encoded.length())).append('\n');
+		}
+		xml.append("</base64></value></param></params></methodResponse>");
+		return xml.toString().getBytes();
+	}
+
+	private Object deserialize(byte[] response) throws XmlPullParserException, IOException {
+		return deserialize(new KXmlParser(), serializer, response);
+	}
+
+	private static Object deserialize(XmlPullParser parser, IXMLRPCSerializer serializer, byte[] response) throws XmlPullParserException, IOException {
+		parser.setInput(new ByteArrayInputStream(response), "UTF-8");
+		parser.nextTag(); // <methodResponse>
+		parser.nextTag(); // <params>
+		parser.nextTag(); // <param>
+		parser.nextTag(); // <value>
+		return serializer.deserialize(parser);
+	}
+
+	/* The default serializer is package private, a client hands it out. */
+	private static class Client extends XMLRPCClient {
+		Client() {
+			super("http://localhost/");
+		}
+
+		IXMLRPCSerializer serializer() {
+			return iXMLRPCSerializer;
+		}
+
+		@Override
+		public Object readResponse(HttpResponse response) throws XMLRPCException, IOException, XmlPullParserException {
+			return super.readResponse(response);
+		}
+	}
+}
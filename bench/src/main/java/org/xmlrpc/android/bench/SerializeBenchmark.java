@@ -0,0 +1,97 @@
+package org.xmlrpc.android.bench;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.kxml2.io.KXmlSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlSerializer;
+import org.xmlrpc.android.IXMLRPCSerializer;
+import org.xmlrpc.android.XMLRPCClient;
+
+/* XMLRPCSerializer.serialize on a large struct of mixed members and on a list of dates,
+ * the latter from several threads at once to cover the shared date codec. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+
+	private IXMLRPCSerializer serializer;
+	private XmlSerializer out;
+	private CharArrayWriter writer;
+	private Map<String, Object> struct;
+	private List<Object> dates;
+
+	@Setup
+	public void setup() throws IOException {
+		serializer = new Client().serializer();
+		writer = new CharArrayWriter(64 * 1024);
+		out = new KXmlSerializer();
+		out.setOutput(writer);
+
+		struct = new HashMap<String, Object>();
+		for (int i = 0; i < 100; i++) {
+			struct.put("int" + i, Integer.valueOf(i));
+			struct.put("string" + i, "value " + i);
+			struct.put("flag" + i, Boolean.valueOf(i % 2 == 0));
+			List<Object> list = new ArrayList<Object>();
+			list.add(Long.valueOf(i));
+			list.add(Double.valueOf(i / 3.0));
+			struct.put("list" + i, list);
+		}
+		dates = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++) {
+			dates.add(new Date(1300000000000L + i * 86400000L));
+		}
+	}
+
+	@Benchmark
+	public int serializeStruct() throws IOException {
+		return serialize(struct);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int serializeDates() throws IOException {
+		return serialize(dates);
+	}
+
+	private int serialize(Object value) throws IOException {
+		writer.reset();
+		out.startTag(null, IXMLRPCSerializer.TAG_VALUE);
+		serializer.serialize(out, value);
+		out.endTag(null, IXMLRPCSerializer.TAG_VALUE);
+		out.flush();
+		return writer.size();
+	}
+
+	/* The default serializer is package private, a client hands it out. */
+	private static class Client extends XMLRPCClient {
+		Client() {
+			super("http://localhost/");
+		}
+
+		IXMLRPCSerializer serializer() {
+			return iXMLRPCSerializer;
+		}
+	}
+}
@@ -17,6 +17,7 @@
  */
 package com.aregner.android.pandoid;
 
+import com.aregner.pandora.RpcFuture;
 import com.aregner.pandora.Song;
 
 import android.app.Activity;
@@ -130,7 +131,7 @@ public class PandoidPlayer extends Activity {
 			pandora.rate(RATING_BAN);
 			Toast.makeText(getApplicationContext(), getString(R.string.baned_song), Toast.LENGTH_SHORT).show();
 			if(prefs.getBoolean("behave_nextOnBan", true)) {
-				updateForNewSong(pandora.next());
+				skip();
 			}
 			break;
 
@@ -144,11 +145,27 @@ public class PandoidPlayer extends Activity {
 			break;
 
 		case R.id.player_next:
-			updateForNewSong(pandora.next());
+			skip();
 			break;
 		}
 	}
 
+	/** Moves on to the next song in the background, the screen follows once it's playing. */
+	private void skip() {
+		pandora.nextAsync().addCallback(new RpcFuture.Callback<Song>() {
+			public void onSuccess(final Song song) {
+				runOnUiThread(new Runnable() {
+					public void run() {
+						updateForNewSong(song);
+					}
+				});
+			}
+			public void onFailure(Throwable error) {
+				error.printStackTrace();
+			}
+		});
+	}
+
 	@Override
 	public boolean onOptionsItemSelected(MenuItem item) {
 		switch (item.getItemId()) {
@@ -237,7 +254,7 @@ public class PandoidPlayer extends Activity {
 		protected Void doInBackground(Void... arg0) {
 			pandora.setListener(OnCompletionListener.class, new OnCompletionListener() {
 				public void onCompletion(MediaPlayer mp) {
-					updateForNewSong(pandora.next());
+					skip();
 				}
 			});
 			pandora.setListener(OnPreparedListener.class, new OnPreparedListener() {
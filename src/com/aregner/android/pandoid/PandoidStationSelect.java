@@ -20,6 +20,7 @@ package com.aregner.android.pandoid;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.aregner.pandora.RpcFuture;
 import com.aregner.pandora.Station;
 
 import android.app.ListActivity;
@@ -47,7 +48,19 @@ public class PandoidStationSelect extends ListActivity {
 		super.onCreate(savedInstanceState);
 		
 		pandora = PandoraRadioService.getInstance(true);
-		ArrayList<Station> stations = pandora.getStations();
+		// shown right away when cached, and redrawn if a newer list comes in
+		ArrayList<Station> stations = pandora.getStations(new RpcFuture.Callback<ArrayList<Station>>() {
+			public void onSuccess(final ArrayList<Station> stations) {
+				runOnUiThread(new Runnable() {
+					public void run() {
+						setListAdapter(new StationListAdapter(stations, PandoidStationSelect.this));
+					}
+				});
+			}
+			public void onFailure(Throwable error) {
+				// keep showing the cached list
+			}
+		});
 
 		ListView lv = getListView();
 		setListAdapter(new StationListAdapter(stations, this));
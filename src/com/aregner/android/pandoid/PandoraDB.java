@@ -20,7 +20,10 @@ package com.aregner.android.pandoid;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 
+import com.aregner.pandora.Feedback;
+import com.aregner.pandora.FeedbackQueue;
 import com.aregner.pandora.Station;
 
 import android.content.ContentValues;
@@ -30,9 +33,9 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 
-public class PandoraDB extends SQLiteOpenHelper {
+public class PandoraDB extends SQLiteOpenHelper implements FeedbackQueue.Store {
 
-	public static final int DATABASE_VERSION = 1;
+	public static final int DATABASE_VERSION = 3;
 	public static final String STATION_TABLE_NAME = "stations";
 	public static final String STATION_TABLE_CREATE =
 		"CREATE TABLE " + STATION_TABLE_NAME + " (" +
@@ -41,6 +44,21 @@ public class PandoraDB extends SQLiteOpenHelper {
 		"isCreator INTEGER, " +
 		"isQuickMix INTEGER, " +
 		"stationName TEXT);";
+	// since version 2, account since version 3
+	public static final String FEEDBACK_TABLE_NAME = "feedback";
+	public static final String FEEDBACK_TABLE_CREATE =
+		"CREATE TABLE " + FEEDBACK_TABLE_NAME + " (" +
+		"_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+		"account TEXT, " +
+		"kind INTEGER, " +
+		"stationId TEXT, " +
+		"musicId TEXT, " +
+		"userSeed TEXT, " +
+		"songType INTEGER, " +
+		"artistMusicId TEXT, " +
+		"created INTEGER, " +
+		"attempts INTEGER, " +
+		"nextAttempt INTEGER);";
 
 	public PandoraDB(Context context) {
 		super(context, "pandoradb", null, DATABASE_VERSION);
@@ -49,11 +67,18 @@ public class PandoraDB extends SQLiteOpenHelper {
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		db.execSQL(STATION_TABLE_CREATE);
+		db.execSQL(FEEDBACK_TABLE_CREATE);
 	}
 
 	@Override
 	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-		
+		if(oldVersion < 2) {
+			db.execSQL(FEEDBACK_TABLE_CREATE);
+		}
+		else if(oldVersion < 3) {
+			// rows from before have no account, the queue throws them away
+			db.execSQL("ALTER TABLE " + FEEDBACK_TABLE_NAME + " ADD COLUMN account TEXT");
+		}
 	}
 	
 	/** */
@@ -92,4 +117,49 @@ public class PandoraDB extends SQLiteOpenHelper {
 		
 		return stations;
 	}
+
+	/** Feedback not sent yet, oldest first. */
+	public List<Feedback> loadFeedback() {
+		Cursor records = getReadableDatabase().query(FEEDBACK_TABLE_NAME,
+				new String[] { "_id", "account", "kind", "stationId", "musicId", "userSeed",
+						"songType", "artistMusicId", "created", "attempts", "nextAttempt" },
+				null, null, null, null, "_id");
+		try {
+			List<Feedback> feedback = new ArrayList<Feedback>(records.getCount());
+			while(records.moveToNext()) {
+				feedback.add(new Feedback(records.getLong(0), records.getString(1), records.getInt(2),
+						records.getString(3), records.getString(4), records.getString(5), records.getInt(6),
+						records.getString(7), records.getLong(8), records.getInt(9), records.getLong(10)));
+			}
+			return feedback;
+		}
+		finally {
+			records.close();
+		}
+	}
+
+	public long saveFeedback(Feedback feedback) {
+		ContentValues values = new ContentValues(10);
+		values.put("account", feedback.getAccount());
+		values.put("kind", feedback.getKind());
+		values.put("stationId", feedback.getStationId());
+		values.put("musicId", feedback.getMusicId());
+		values.put("userSeed", feedback.getUserSeed());
+		values.put("songType", feedback.getSongType());
+		values.put("artistMusicId", feedback.getArtistMusicId());
+		values.put("created", feedback.getCreated());
+		values.put("attempts", feedback.getAttempts());
+		values.put("nextAttempt", feedback.getNextAttempt());
+
+		SQLiteDatabase write = getWritableDatabase();
+		if(feedback.getId() == 0) {
+			return write.insert(FEEDBACK_TABLE_NAME, null, values);
+		}
+		write.update(FEEDBACK_TABLE_NAME, values, "_id = ?", new String[] { String.valueOf(feedback.getId()) });
+		return feedback.getId();
+	}
+
+	public void deleteFeedback(long id) {
+		getWritableDatabase().delete(FEEDBACK_TABLE_NAME, "_id = ?", new String[] { String.valueOf(id) });
+	}
 }
@@ -18,11 +18,24 @@
 package com.aregner.android.pandoid;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.xmlrpc.android.IXMLRPCElementListener;
+
+import com.aregner.pandora.CipherEngines;
+import com.aregner.pandora.FeedbackQueue;
 import com.aregner.pandora.PandoraRadio;
+import com.aregner.pandora.ResponseCache;
+import com.aregner.pandora.RpcFuture;
 import com.aregner.pandora.Song;
 import com.aregner.pandora.Station;
 
@@ -38,19 +51,26 @@ import android.content.SharedPreferences;
 import android.database.sqlite.SQLiteDatabase;
 import android.media.MediaPlayer;
 import android.media.MediaPlayer.OnCompletionListener;
+import android.media.MediaPlayer.OnErrorListener;
 import android.media.MediaPlayer.OnPreparedListener;
 import android.os.AsyncTask;
 import android.os.IBinder;
+import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
+import android.util.Log;
 
 public class PandoraRadioService extends Service {
 
+	private static final String LOG_TAG = "PandoraRadioService";
 	private static final int NOTIFICATION_SONG_PLAYING = 1;
+	// seconds prepare() waits for a song that started buffering early
+	private static final long EARLY_START_TIMEOUT = 30;
 	
 	// tools this service uses
 	private PandoraRadio pandora;
+	private FeedbackQueue feedback;
 	private MediaPlayer media;
 	
 	private NotificationManager notificationManager;
@@ -60,9 +80,11 @@ public class PandoraRadioService extends Service {
 	// tracking/organizing what we are doing
 	private Station currentStation;
 	private Song[] currentPlaylist;
-	private Song[] nextPlaylist;
+	private volatile Song[] nextPlaylist;
 	private int currentSongIndex;
 	private HashMap<Class<?>,Object> listeners = new HashMap<Class<?>,Object>();
+	// skips wait on the network, they run here instead of on the main thread
+	private ExecutorService player;
 
 	protected PandoraDB db;
 
@@ -106,7 +128,19 @@ public class PandoraRadioService extends Service {
 			super.onCreate();
 			instance = this;
 			pandora = new PandoraRadio();
+			// the station list from last time shows up before the server has answered
+			pandora.setResponseCache(PandoraRadio.newResponseCache(
+					new ResponseCache.DirectoryStore(new File(getCacheDir(), "rpc"))));
+			// unsent thumbs from last time are picked up from the database
+			feedback = new FeedbackQueue(pandora, new PandoraDB(getBaseContext()));
 			media = new MediaPlayer();
+			player = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PandoidPlayer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 			
 			notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
 			telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
@@ -164,18 +198,95 @@ public class PandoraRadioService extends Service {
 		startForeground(NOTIFICATION_SONG_PLAYING, notification);
 	}
 
-	/**  */
-	private class PrepareNextPlaylistTask extends AsyncTask<Void, Void, Void> {
-		@Override
-		protected Void doInBackground(Void... arg0) {
-			nextPlaylist = currentStation.getPlaylist( prefs.getString("pandora_audioFormat", PandoraRadio.DEFAULT_AUDIO_FORMAT) );
-			return null;
+	/** Downloads the playlist after this one in the background. */
+	private void prepareNextPlaylist() {
+		currentStation.getPlaylistAsync( prefs.getString("pandora_audioFormat", PandoraRadio.DEFAULT_AUDIO_FORMAT) )
+			.addCallback(new RpcFuture.Callback<Song[]>() {
+				public void onSuccess(Song[] playlist) {
+					nextPlaylist = playlist;
+				}
+				public void onFailure(Throwable error) {
+					// next() downloads one itself when it gets there
+					error.printStackTrace();
+				}
+			});
+	}
+
+	/** Starts buffering the first song of a new playlist while the rest of the playlist is
+	 *  still being downloaded, prepare() then waits for it instead of preparing on its own. */
+	private class EarlyStart implements IXMLRPCElementListener<Song>, OnPreparedListener, OnErrorListener {
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile boolean started;
+		private volatile boolean prepared;
+
+		public void onElement(int index, Song song) {
+			if(index != 0) {
+				return;
+			}
+			media.reset();
+			media.setOnCompletionListener((OnCompletionListener)listeners.get(OnCompletionListener.class));
+			media.setOnPreparedListener(this);
+			media.setOnErrorListener(this);
+			try {
+				media.setDataSource(song.getAudioUrl());
+				media.prepareAsync();
+				started = true;
+			} catch (IllegalArgumentException e) {
+				e.printStackTrace();
+			} catch (IllegalStateException e) {
+				e.printStackTrace();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		public void onPrepared(MediaPlayer mp) {
+			prepared = true;
+			OnPreparedListener listener = (OnPreparedListener)listeners.get(OnPreparedListener.class);
+			if(listener != null) {
+				listener.onPrepared(mp);
+			}
+			done.countDown();
+		}
+
+		public boolean onError(MediaPlayer mp, int what, int extra) {
+			if(prepared) {
+				// already playing, let it complete and move on like any other error
+				return false;
+			}
+			// prepare() falls back to preparing the song itself
+			done.countDown();
+			return true;
+		}
+
+		/** Whether the first song was started early and is ready to play.  Never waits on the
+		 *  main thread: onPrepared() is delivered there, so it could only time out. */
+		boolean awaitPrepared() {
+			if(!started) {
+				return false;
+			}
+			if(Looper.myLooper() == Looper.getMainLooper()) {
+				return prepared;
+			}
+			try {
+				done.await(EARLY_START_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return prepared;
 		}
 	}
 
 	/** methods for clients */
 	public void signIn(String username, String password) {
 		pandora.connect(username, password);
+		feedback.retryNow();
+
+		// once per process: called off the main thread, so it can calibrate here
+		if(CipherEngines.getReport() == null) {
+			CipherEngines.getPreferred();
+			Log.i(LOG_TAG, "cipher engine " + CipherEngines.getReport());
+		}
 	}
 	public void signOut() {
 		if(media != null) {
@@ -185,6 +296,16 @@ public class PandoraRadioService extends Service {
 			media = null;
 		}
 
+		if(player != null) {
+			player.shutdown();
+			player = null;
+		}
+
+		if(feedback != null) {
+			feedback.shutdown();
+			feedback = null;
+		}
+
 		if(pandora != null) {
 			pandora.disconnect();
 			pandora = null;
@@ -212,11 +333,32 @@ public class PandoraRadioService extends Service {
 			return stations;
 		}
 	}
-	@SuppressWarnings("unchecked")
 	public ArrayList<Station> getStations() {
+		return getStations(null);
+	}
+	/** The stations, from the cache if they're in it; refreshed gets the new list, on a
+	 *  background thread, if the cached one was old enough to be downloaded again. */
+	@SuppressWarnings("unchecked")
+	public ArrayList<Station> getStations(final RpcFuture.Callback<? super ArrayList<Station>> refreshed) {
 		ArrayList<Station> stations;
 
-		stations = pandora.getStations();
+		stations = pandora.getStations(new RpcFuture.Callback<ArrayList<Station>>() {
+			public void onSuccess(ArrayList<Station> stations) {
+				// already off the main thread
+				PandoraDB db = new PandoraDB(getBaseContext());
+				db.syncStations(stations);
+				db.close();
+				if(refreshed != null)
+					refreshed.onSuccess(stations);
+			}
+			public void onFailure(Throwable error) {
+				if(refreshed != null)
+					refreshed.onFailure(error);
+			}
+		});
+		if(stations == null) {
+			return null;
+		}
 
 		(new AsyncTask<ArrayList<Station>, Void, Void>() {
 			@Override
@@ -247,8 +389,13 @@ public class PandoraRadioService extends Service {
 		return media.isPlaying();
 	}
 	public void prepare() {
-		currentPlaylist = currentStation.getPlaylist( prefs.getString("pandora_audioFormat", PandoraRadio.DEFAULT_AUDIO_FORMAT) );
-		prepare(0);
+		EarlyStart early = new EarlyStart();
+		Song[] playlist = currentStation.getPlaylist( prefs.getString("pandora_audioFormat", PandoraRadio.DEFAULT_AUDIO_FORMAT), early );
+		currentSongIndex = 0;
+		currentPlaylist = playlist;
+		if(!early.awaitPrepared()) {
+			prepare(0);
+		}
 	}
 	public void prepare(int i) {
 		currentSongIndex = i;
@@ -256,6 +403,7 @@ public class PandoraRadioService extends Service {
 		
 		media.setOnCompletionListener((OnCompletionListener)listeners.get(OnCompletionListener.class));
 		media.setOnPreparedListener((OnPreparedListener)listeners.get(OnPreparedListener.class));
+		media.setOnErrorListener(null);
 		try {
 			media.setDataSource( currentPlaylist[i].getAudioUrl() );
 		} catch (IllegalArgumentException e1) {
@@ -296,20 +444,32 @@ public class PandoraRadioService extends Service {
 			setNotification();
 		}
 	}
+	/** Same as next(), on the player's thread; what the UI calls, since next() may have to
+	 *  download a playlist and buffer the song.  Skips run one after another. */
+	public RpcFuture<Song> nextAsync() {
+		return RpcFuture.submit(player, new Callable<Song>() {
+			public Song call() {
+				return next();
+			}
+		});
+	}
 	public Song next() {
-		// play the next song in the current list
-		if(++currentSongIndex < currentPlaylist.length) {
-			prepare(currentSongIndex);
+		// play the next song in the current list; the index only moves once it's valid, the
+		// UI thread reads it for ratings meanwhile
+		int next = currentSongIndex + 1;
+		if(next < currentPlaylist.length) {
+			prepare(next);
 
 			// prepare the next playlist if we are nearing the end
-			if(currentSongIndex + 1 >= currentPlaylist.length) {
-				(new PrepareNextPlaylistTask()).execute();
+			if(next + 1 >= currentPlaylist.length) {
+				prepareNextPlaylist();
 			}
 
-			return play(currentSongIndex);
+			return play(next);
 		}
 		// switch to a pre-fetched playlist for the next one
 		else if(nextPlaylist != null) {
+			currentSongIndex = 0;
 			currentPlaylist = nextPlaylist;
 			nextPlaylist = null;
 			prepare(0);
@@ -330,6 +490,7 @@ public class PandoraRadioService extends Service {
 		
 		boolean ratingBool = rating.equals(PandoidPlayer.RATING_LOVE) ? true : false;
 		
-		pandora.rate(currentStation, currentPlaylist[currentSongIndex], ratingBool);
+		// called from button presses, the rating is queued and sent in the background
+		feedback.rate(currentStation, currentPlaylist[currentSongIndex], ratingBool);
 	}
 }
@@ -24,131 +24,286 @@
  */
 package com.aregner.pandora;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
-public class Blowfish {
+
+public class Blowfish implements CipherEngine {
 	
 	// Cipher directions
 	private static final int ENCRYPT = 0;
 	private static final int DECRYPT = 1;
 	
-	// For the roundFunc()
-	private static final long modulus = (long) Math.pow(2L, 32);
+	private static final int BLOCK_SIZE = 8;
 	
-	private long[] p_boxes;
-	private long[][] s_boxes;
+	// P-array and the four S-boxes flattened into one table (s0 | s1 | s2 | s3)
+	private final int[] p_boxes;
+	private final int[] s_boxes;
 	
 	
-	public Blowfish(long[] p_boxes, long[][] s_boxes) {
+	public Blowfish(int[] p_boxes, int[] s_boxes) {
+		if(p_boxes.length != 18 || s_boxes.length != 4 * 256) {
+			throw new IllegalArgumentException("Blowfish needs 18 P entries and 4x256 S entries, got "+p_boxes.length+" and "+s_boxes.length);
+		}
 		this.p_boxes = p_boxes;
 		this.s_boxes = s_boxes;
 	}
 	
-	protected long[] cipher(long xl, long xr, int direction) {
-		long temp_x;
-		long[] result = {0L, 0L};
-		
-		if(direction == Blowfish.ENCRYPT) {
-			for(int i=0; i<16; i++) {
-				xl = xl ^ this.p_boxes[i];
-				xr = this.roundFunc(xl) ^ xr;
-				temp_x = xl; xl = xr; xr = temp_x;
+	public Blowfish(long[] p_boxes, long[][] s_boxes) {
+		this(flatten(p_boxes), flatten(s_boxes));
+	}
+	
+	/* The digits of pi every key schedule starts from, in the same layout as a
+	 * pandora_keys.bin direction.  Only loaded when fromKey() is first used. */
+	private static final class InitialBoxes {
+		static final int[] P = new int[18];
+		static final int[] S = new int[4 * 256];
+		static {
+			try {
+				InputStream in = Blowfish.class.getResourceAsStream("blowfish_init.bin");
+				if(in == null) {
+					throw new IOException("blowfish_init.bin is missing from the classpath");
+				}
+				try {
+					DataInputStream data = new DataInputStream(in);
+					for(int i=0; i<P.length; i++) P[i] = data.readInt();
+					for(int i=0; i<S.length; i++) S[i] = data.readInt();
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
 			}
-			temp_x = xl; xl = xr; xr = temp_x;
-			xr = xr ^ this.p_boxes[16];
-			xl = xl ^ this.p_boxes[17];
-		}
-		else if(direction == Blowfish.DECRYPT) {
-			for(int i=17; i>1; i--) {
-				xl = xl ^ this.p_boxes[i];
-				xr = this.roundFunc(xl) ^ xr;
-				temp_x = xl; xl = xr; xr = temp_x;
+		}
+	}
+
+	/** Runs the standard Blowfish key schedule for a raw key of 4 to 56 bytes. */
+	public static Blowfish fromKey(byte[] key) {
+		if(key.length < 4 || key.length > 56) {
+			throw new IllegalArgumentException("Blowfish keys are 4 to 56 bytes, got "+key.length);
+		}
+		Blowfish blowfish = new Blowfish(InitialBoxes.P.clone(), InitialBoxes.S.clone());
+		int[] p = blowfish.p_boxes;
+		int[] s = blowfish.s_boxes;
+
+		for(int i=0, k=0; i<p.length; i++) {
+			int data = 0;
+			for(int b=0; b<4; b++, k++) {
+				data = (data << 8) | (key[k % key.length] & 0xff);
 			}
-			temp_x = xl; xl = xr; xr = temp_x;
-			xr = xr ^ this.p_boxes[1];
-			xl = xl ^ this.p_boxes[0];
+			p[i] ^= data;
+		}
+
+		byte[] block = new byte[BLOCK_SIZE];
+		for(int i=0; i<p.length; i+=2) {
+			blowfish.encryptBlock(block, 0);
+			p[i] = readInt(block, 0);
+			p[i+1] = readInt(block, 4);
+		}
+		for(int i=0; i<s.length; i+=2) {
+			blowfish.encryptBlock(block, 0);
+			s[i] = readInt(block, 0);
+			s[i+1] = readInt(block, 4);
+		}
+		return blowfish;
+	}
+	
+	private static int[] flatten(long[] boxes) {
+		int[] result = new int[boxes.length];
+		for(int i=0; i<boxes.length; i++) {
+			result[i] = (int) boxes[i];
 		}
-		
-		result[0] = xl;
-		result[1] = xr;
 		return result;
 	}
 	
-	private long roundFunc(long xl) {
-		long a = (xl & 0xff000000) >> 24;
-		long b = (xl & 0x00ff0000) >> 16;
-		long c = (xl & 0x0000ff00) >> 8;
-		long d = xl & 0x000000ff;
+	private static int[] flatten(long[][] boxes) {
+		int[] result = new int[boxes.length * 256];
+		for(int b=0; b<boxes.length; b++) {
+			for(int i=0; i<256; i++) {
+				result[(b << 8) | i] = (int) boxes[b][i];
+			}
+		}
+		return result;
+	}
+	
+	private int roundFunc(int x) {
+		final int[] s = s_boxes;
+		return ((s[x >>> 24] + s[0x100 | ((x >>> 16) & 0xff)]) ^ s[0x200 | ((x >>> 8) & 0xff)]) + s[0x300 | (x & 0xff)];
+	}
+	
+	/* The block functions below keep both halves in locals and never allocate,
+	 * everything else in this class is built on top of them. */
+	
+	/** Encrypts the 8 byte block at data[offset] in place. */
+	public void encryptBlock(byte[] data, int offset) {
+		final int[] p = p_boxes;
+		int xl = readInt(data, offset);
+		int xr = readInt(data, offset + 4);
 		
-		// Perform all ops as longs then and out the last 32-bits to obtain the integer
-		long f = ((long)this.s_boxes[0][(int)a] + (long)this.s_boxes[1][(int)b]) % Blowfish.modulus;
-		f = f ^ (long)this.s_boxes[2][(int)c];
-		f = f + (long)this.s_boxes[3][(int)d];
-		f = (f % Blowfish.modulus) & 0xffffffff;
+		for(int i=0; i<16; i+=2) {
+			xl ^= p[i];
+			xr ^= roundFunc(xl);
+			xr ^= p[i+1];
+			xl ^= roundFunc(xr);
+		}
+		xl ^= p[16];
+		xr ^= p[17];
 		
-		return f;
+		writeInt(data, offset, xr);
+		writeInt(data, offset + 4, xl);
 	}
 	
-	public long[] encrypt(char[] data) {
-		long[] chars = new long[8];
+	/** Decrypts the 8 byte block at data[offset] in place. */
+	public void decryptBlock(byte[] data, int offset) {
+		final int[] p = p_boxes;
+		int xl = readInt(data, offset);
+		int xr = readInt(data, offset + 4);
 		
-		if(data.length != 8) {
-			throw new RuntimeException("Attempted to encrypt data of invalid block length: "+data.length);
+		for(int i=17; i>1; i-=2) {
+			xl ^= p[i];
+			xr ^= roundFunc(xl);
+			xr ^= p[i-1];
+			xl ^= roundFunc(xr);
 		}
+		xl ^= p[1];
+		xr ^= p[0];
 		
-		// Use big endianess since that's what everyone else uses
-		long xl = (long)data[3] | ((long)data[2] << 8) | ((long)data[1] << 16) | ((long)data[0] << 24);
-		long xr = (long)data[7] | ((long)data[6] << 8) | ((long)data[5] << 16) | ((long)data[4] << 24);
+		writeInt(data, offset, xr);
+		writeInt(data, offset + 4, xl);
+	}
+	
+	/** Encrypts length bytes of data in place, length must be a multiple of the block size. */
+	public void encrypt(byte[] data, int offset, int length) {
+		checkRange(data.length, offset, length);
+		for(int end = offset + length; offset < end; offset += BLOCK_SIZE) {
+			encryptBlock(data, offset);
+		}
+	}
+	
+	/** Decrypts length bytes of data in place, length must be a multiple of the block size. */
+	public void decrypt(byte[] data, int offset, int length) {
+		checkRange(data.length, offset, length);
+		for(int end = offset + length; offset < end; offset += BLOCK_SIZE) {
+			decryptBlock(data, offset);
+		}
+	}
+	
+	/** Encrypts the remaining bytes of the buffer in place, its position is left untouched. */
+	public void encrypt(ByteBuffer buffer) {
+		cipher(buffer, ENCRYPT);
+	}
+	
+	/** Decrypts the remaining bytes of the buffer in place, its position is left untouched. */
+	public void decrypt(ByteBuffer buffer) {
+		cipher(buffer, DECRYPT);
+	}
+	
+	private void cipher(ByteBuffer buffer, int direction) {
+		int position = buffer.position();
+		int length = buffer.remaining();
+		if(length % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException("Attempted to cipher data of invalid length: "+length);
+		}
 		
-		long[] temp_x = this.cipher(xl, xr, Blowfish.ENCRYPT);
-		long cl = temp_x[0];
-		long cr = temp_x[1];
-
-		chars[0] = ((cl >> 24) & 0xff);
-		chars[1] = ((cl >> 16) & 0xff);
-		chars[2] = ((cl >> 8) & 0xff);
-		chars[3] = (cl & 0xff);
-		chars[4] = ((cr >> 24) & 0xff);
-		chars[5] = ((cr >> 16) & 0xff);
-		chars[6] = ((cr >> 8) & 0xff);
-		chars[7] = (cr & 0xff);
+		if(buffer.hasArray()) {
+			int offset = buffer.arrayOffset() + position;
+			if(direction == ENCRYPT)
+				encrypt(buffer.array(), offset, length);
+			else
+				decrypt(buffer.array(), offset, length);
+			return;
+		}
 		
-		return chars;
+		// no backing array (direct buffers), so copy through one scratch block
+		byte[] block = new byte[BLOCK_SIZE];
+		for(int i = position, end = position + length; i < end; i += BLOCK_SIZE) {
+			for(int b=0; b<BLOCK_SIZE; b++) block[b] = buffer.get(i + b);
+			if(direction == ENCRYPT)
+				encryptBlock(block, 0);
+			else
+				decryptBlock(block, 0);
+			for(int b=0; b<BLOCK_SIZE; b++) buffer.put(i + b, block[b]);
+		}
 	}
 	
-	public String decrypt(char[] data) {
-		long[] chars = new long[8];
-		StringBuilder result = new StringBuilder(8);
-		
-		if(data.length != 8) {
-			throw new RuntimeException("Attempted to encrypt data of invalid block length: "+data.length);
+	private static void checkRange(int size, int offset, int length) {
+		if(length % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException("Attempted to cipher data of invalid length: "+length);
+		}
+		if(offset < 0 || length < 0 || offset + length > size) {
+			throw new ArrayIndexOutOfBoundsException("Range "+offset+"+"+length+" outside of "+size+" bytes");
 		}
+	}
+	
+	// Use big endianess since that's what everyone else uses
+	private static int readInt(byte[] data, int offset) {
+		return (data[offset] << 24) | ((data[offset+1] & 0xff) << 16) | ((data[offset+2] & 0xff) << 8) | (data[offset+3] & 0xff);
+	}
+	
+	private static void writeInt(byte[] data, int offset, int v) {
+		data[offset] = (byte) (v >>> 24);
+		data[offset+1] = (byte) (v >>> 16);
+		data[offset+2] = (byte) (v >>> 8);
+		data[offset+3] = (byte) v;
+	}
+	
+	/* Legacy adapters, these allocate per call and only exist for older callers. */
+	
+	protected long[] cipher(long xl, long xr, int direction) {
+		byte[] block = new byte[BLOCK_SIZE];
+		writeInt(block, 0, (int) xl);
+		writeInt(block, 4, (int) xr);
 		
-		// Use big endianess since that's what everyone else uses
-		long cl = (long)data[3] | ((long)data[2] << 8) | ((long)data[1] << 16) | ((long)data[0] << 24);
-		long cr = (long)data[7] | ((long)data[6] << 8) | ((long)data[5] << 16) | ((long)data[4] << 24);
+		if(direction == Blowfish.ENCRYPT)
+			encryptBlock(block, 0);
+		else if(direction == Blowfish.DECRYPT)
+			decryptBlock(block, 0);
 		
-		long[] temp_x = this.cipher(cl, cr, Blowfish.DECRYPT);
-		long xl = temp_x[0];
-		long xr = temp_x[1];
-
-		chars[0] = ((xl >> 24) & 0xff);
-		chars[1] = ((xl >> 16) & 0xff);
-		chars[2] = ((xl >> 8) & 0xff);
-		chars[3] = (xl & 0xff);
-		chars[4] = ((xr >> 24) & 0xff);
-		chars[5] = ((xr >> 16) & 0xff);
-		chars[6] = ((xr >> 8) & 0xff);
-		chars[7] = (xr & 0xff);
+		long[] result = {readInt(block, 0) & 0xffffffffL, readInt(block, 4) & 0xffffffffL};
+		return result;
+	}
+	
+	private static byte[] toBlock(char[] data) {
+		if(data.length != BLOCK_SIZE) {
+			throw new RuntimeException("Attempted to cipher data of invalid block length: "+data.length);
+		}
+		byte[] block = new byte[BLOCK_SIZE];
+		for(int c=0; c<BLOCK_SIZE; c++) {
+			block[c] = (byte) data[c];
+		}
+		return block;
+	}
+	
+	public long[] encrypt(char[] data) {
+		byte[] block = toBlock(data);
+		encryptBlock(block, 0);
 		
-		for(int c=0; c<chars.length; c++) {
-			result.append(String.valueOf((char)chars[c]));
+		long[] chars = new long[BLOCK_SIZE];
+		for(int c=0; c<BLOCK_SIZE; c++) {
+			chars[c] = block[c] & 0xff;
 		}
+		return chars;
+	}
+	
+	public String decrypt(char[] data) {
+		byte[] block = toBlock(data);
+		decryptBlock(block, 0);
 		
-		return result.toString();
+		char[] chars = new char[BLOCK_SIZE];
+		for(int c=0; c<BLOCK_SIZE; c++) {
+			chars[c] = (char) (block[c] & 0xff);
+		}
+		return new String(chars);
+	}
+	
+	public String getName() {
+		return "java";
 	}
 	
 	public int blocksize() {
-		return 8;
+		return BLOCK_SIZE;
 	}
 	
 	public int keyLength() {
@@ -0,0 +1,103 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/* Encrypts everything written to it with Blowfish and passes the cipher text on to
+ * the underlying stream as lower case hex, which is how Pandora expects request bodies.
+ * Plain text is collected into a fixed chunk so the engine sees a few KB per call instead
+ * of single blocks.  The final partial block is padded with zero bytes by finish() or close().
+ */
+public class BlowfishHexOutputStream extends FilterOutputStream {
+
+	private static final int BLOCKS_PER_WRITE = 256;
+
+	private final CipherEngine engine;
+	private final byte[] plain = new byte[BLOCKS_PER_WRITE * CipherEngine.BLOCK_SIZE];
+	private final byte[] hex = new byte[plain.length * 2];
+	private int plainLength;
+	private boolean finished;
+
+	public BlowfishHexOutputStream(OutputStream out, CipherEngine engine) {
+		super(out);
+		this.engine = engine;
+	}
+
+	/** Number of hex characters produced for length bytes of plain text. */
+	public static long encodedLength(long length) {
+		return ((length + 7) / 8) * 16;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if(finished) {
+			throw new IOException("Stream already finished");
+		}
+		plain[plainLength++] = (byte) b;
+		if(plainLength == plain.length) {
+			writeChunk();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(finished) {
+			throw new IOException("Stream already finished");
+		}
+		while(len > 0) {
+			int n = Math.min(len, plain.length - plainLength);
+			System.arraycopy(b, off, plain, plainLength, n);
+			plainLength += n;
+			off += n;
+			len -= n;
+			if(plainLength == plain.length) {
+				writeChunk();
+			}
+		}
+	}
+
+	/* plainLength has to be block aligned here */
+	private void writeChunk() throws IOException {
+		engine.encrypt(plain, 0, plainLength);
+		int hexLength = Hex.encode(plain, 0, plainLength, hex, 0);
+		out.write(hex, 0, hexLength);
+		plainLength = 0;
+	}
+
+	/** Pads and writes out the last block without closing the underlying stream. */
+	public void finish() throws IOException {
+		if(finished)
+			return;
+		while(plainLength % CipherEngine.BLOCK_SIZE != 0) {
+			plain[plainLength++] = 0;
+		}
+		if(plainLength > 0) {
+			writeChunk();
+		}
+		finished = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		super.close();
+	}
+}
@@ -0,0 +1,35 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+/* A block cipher working in place on byte ranges.  Pandora only ever uses Blowfish in
+ * ECB mode, so an engine is just one keyed Blowfish that can go both directions.
+ * Implementations have to be safe to share between threads.
+ */
+public interface CipherEngine {
+	int BLOCK_SIZE = 8;
+
+	/** Encrypts length bytes of data in place, length must be a multiple of BLOCK_SIZE. */
+	void encrypt(byte[] data, int offset, int length);
+
+	/** Decrypts length bytes of data in place, length must be a multiple of BLOCK_SIZE. */
+	void decrypt(byte[] data, int offset, int length);
+
+	/** Short name of the implementation, used when reporting which engine was chosen. */
+	String getName();
+}
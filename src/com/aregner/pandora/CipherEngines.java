@@ -0,0 +1,126 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+/* Hands out CipherEngines.  Engines for a raw key can come from either the Java port or
+ * the platform provider; which one is faster depends a lot on the VM, so the first time
+ * one is needed both are timed against each other and the winner is used from then on.
+ */
+public final class CipherEngines {
+
+	public static final String JAVA = "java";
+	public static final String JCE = "jce";
+
+	private static final byte[] CALIBRATION_KEY = "calibrate".getBytes();
+	private static final int CALIBRATION_BYTES = 16 * 1024;
+	private static final int CALIBRATION_ROUNDS = 5;
+
+	private static volatile String preferred;
+	private static volatile String report;
+
+	private CipherEngines() {
+	}
+
+	/** Engine for pre-expanded boxes, only the Java port can be keyed this way. */
+	public static CipherEngine forBoxes(int[] p_boxes, int[] s_boxes) {
+		return new Blowfish(p_boxes, s_boxes);
+	}
+
+	/** Engine for a raw Blowfish key, using whichever implementation calibrated faster. */
+	public static CipherEngine forKey(byte[] key) {
+		if(JCE.equals(getPreferred())) {
+			try {
+				return new JceCipherEngine(key);
+			} catch (GeneralSecurityException e) {
+				e.printStackTrace();
+			}
+		}
+		return Blowfish.fromKey(key);
+	}
+
+	/** JAVA or JCE, running the calibration if that hasn't happened yet. */
+	public static String getPreferred() {
+		if(preferred == null) {
+			calibrate();
+		}
+		return preferred;
+	}
+
+	/** Human readable result of the calibration, null until it has run. */
+	public static String getReport() {
+		return report;
+	}
+
+	public static synchronized void calibrate() {
+		if(preferred != null)
+			return;
+
+		CipherEngine java = Blowfish.fromKey(CALIBRATION_KEY);
+		CipherEngine jce;
+		try {
+			jce = new JceCipherEngine(CALIBRATION_KEY);
+		} catch (GeneralSecurityException e) {
+			finishCalibration(JAVA, "using " + java.getName() + ", no JCE Blowfish available (" + e.getMessage() + ")");
+			return;
+		}
+
+		byte[] sample = new byte[CALIBRATION_BYTES];
+		new Random(CALIBRATION_BYTES).nextBytes(sample);
+
+		// both have to agree before we even think about timing them
+		byte[] expected = sample.clone();
+		byte[] actual = sample.clone();
+		java.encrypt(expected, 0, expected.length);
+		jce.encrypt(actual, 0, actual.length);
+		if(!Arrays.equals(expected, actual)) {
+			finishCalibration(JAVA, "using " + java.getName() + ", " + jce.getName() + " produced different output");
+			return;
+		}
+
+		long javaNanos = time(java, sample);
+		long jceNanos = time(jce, sample);
+		String timings = java.getName() + " " + javaNanos / 1000 + "us, " + jce.getName() + " " + jceNanos / 1000 + "us per " + CALIBRATION_BYTES / 1024 + "KB";
+		if(jceNanos < javaNanos) {
+			finishCalibration(JCE, "using " + jce.getName() + " (" + timings + ")");
+		}
+		else {
+			finishCalibration(JAVA, "using " + java.getName() + " (" + timings + ")");
+		}
+	}
+
+	private static void finishCalibration(String choice, String message) {
+		report = message;
+		preferred = choice;
+	}
+
+	/** Best of a few rounds, after one untimed round to get past class loading and the JIT. */
+	private static long time(CipherEngine engine, byte[] data) {
+		engine.encrypt(data, 0, data.length);
+		long best = Long.MAX_VALUE;
+		for(int r=0; r<CALIBRATION_ROUNDS; r++) {
+			long start = System.nanoTime();
+			engine.encrypt(data, 0, data.length);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,103 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/* Request body that holds only the plain text and encrypts + hex encodes it while it is
+ * being written to the connection, so the encrypted body never exists as a whole.  Bodies
+ * large enough for ParallelEcb to split are encrypted up front on several cores instead.
+ */
+public class EncryptedEntity extends AbstractHttpEntity {
+
+	private final CipherEngine engine;
+	private final byte[] data;
+	private final int offset;
+	private final int length;
+	private final ParallelEcb parallel;
+	// time the last writeTo() took, the encryption with the body going into the socket buffer
+	private volatile long writeNanos;
+
+	public EncryptedEntity(CipherEngine engine, byte[] data, int offset, int length, ParallelEcb parallel) {
+		this.engine = engine;
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+		this.parallel = parallel;
+		setContentType("text/xml");
+	}
+
+	public EncryptedEntity(CipherEngine engine, byte[] data, int offset, int length) {
+		this(engine, data, offset, length, null);
+	}
+
+	public EncryptedEntity(CipherEngine engine, byte[] data) {
+		this(engine, data, 0, data.length, null);
+	}
+
+	public long getContentLength() {
+		return BlowfishHexOutputStream.encodedLength(length);
+	}
+
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	public boolean isStreaming() {
+		return false;
+	}
+
+	public InputStream getContent() throws IOException {
+		// only used by clients that want to read the body back, writeTo() is the real path
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) getContentLength());
+		writeTo(buffer);
+		return new ByteArrayInputStream(buffer.toByteArray());
+	}
+
+	/** How long the last writeTo() took in ns, mostly encryption for bodies that fit the
+	 *  socket's buffer. */
+	public long getWriteNanos() {
+		return writeNanos;
+	}
+
+	public void writeTo(OutputStream outstream) throws IOException {
+		if(outstream == null) {
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		long start = System.nanoTime();
+		if(parallel != null && parallel.shouldSplit(length)) {
+			byte[] hex = new byte[(int) getContentLength()];
+			parallel.encryptToHex(engine, data, offset, length, hex, 0);
+			outstream.write(hex);
+			outstream.flush();
+		}
+		else {
+			BlowfishHexOutputStream encrypted = new BlowfishHexOutputStream(outstream, engine);
+			encrypted.write(data, offset, length);
+			encrypted.finish();
+			outstream.flush();
+		}
+		writeNanos = System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,164 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+/* One thumb, bookmark or tired song waiting in a FeedbackQueue.  It carries the ids the
+ * call needs rather than the Song and Station, so it can be stored and sent long after
+ * both are gone, and the account it was given under so it is only ever sent as that user.
+ */
+public final class Feedback {
+
+	public static final int LOVE = 1;
+	public static final int BAN = 2;
+	public static final int TIRED = 3;
+	public static final int BOOKMARK_SONG = 4;
+	public static final int BOOKMARK_ARTIST = 5;
+
+	private final String account;
+	private final int kind;
+	private final String stationId;
+	private final String musicId;
+	private final String userSeed;
+	private final int songType;
+	private final String artistMusicId;
+	private final long created;
+
+	// kept by the queue and its store
+	long id;
+	int attempts;
+	long nextAttempt;
+
+	/** For stores reading back what they saved, everything else uses the factories. */
+	public Feedback(long id, String account, int kind, String stationId, String musicId,
+			String userSeed, int songType, String artistMusicId, long created, int attempts,
+			long nextAttempt) {
+		this.id = id;
+		this.account = account;
+		this.kind = kind;
+		this.stationId = stationId;
+		this.musicId = musicId;
+		this.userSeed = userSeed;
+		this.songType = songType;
+		this.artistMusicId = artistMusicId;
+		this.created = created;
+		this.attempts = attempts;
+		this.nextAttempt = nextAttempt;
+	}
+
+	private Feedback(String account, int kind, Station station, Song song) {
+		this(0, account, kind, String.valueOf(station.getId()), song.getId(), song.getUserSeed(),
+				song.getSongType(), song.getArtistMusicId(), System.currentTimeMillis(), 0, 0);
+	}
+
+	public static Feedback rate(String account, Station station, Song song, boolean rating) {
+		return new Feedback(account, rating ? LOVE : BAN, station, song);
+	}
+
+	public static Feedback tired(String account, Station station, Song song) {
+		return new Feedback(account, TIRED, station, song);
+	}
+
+	public static Feedback bookmarkSong(String account, Station station, Song song) {
+		return new Feedback(account, BOOKMARK_SONG, station, song);
+	}
+
+	public static Feedback bookmarkArtist(String account, Station station, Song song) {
+		return new Feedback(account, BOOKMARK_ARTIST, station, song);
+	}
+
+	/** Whether this was given under account.  Feedback without one never is. */
+	boolean belongsTo(String account) {
+		return this.account != null && this.account.equals(account);
+	}
+
+	/** Whether sending this makes other pointless: a newer rating of the same song on the
+	 *  same station, or the same tired song or bookmark again, by the same user. */
+	boolean supersedes(Feedback other) {
+		if(!equal(account, other.account)) {
+			return false;
+		}
+		switch(kind) {
+		case LOVE:
+		case BAN:
+			return (other.kind == LOVE || other.kind == BAN)
+				&& equal(stationId, other.stationId) && equal(musicId, other.musicId);
+		case BOOKMARK_ARTIST:
+			return other.kind == kind && equal(artistMusicId, other.artistMusicId);
+		default:
+			return other.kind == kind && equal(musicId, other.musicId);
+		}
+	}
+
+	RpcCall toCall() {
+		switch(kind) {
+		case LOVE:
+		case BAN:
+			return PandoraRadio.rateCall(stationId, musicId, userSeed, kind == LOVE, songType);
+		case TIRED:
+			return PandoraRadio.tiredCall(stationId, musicId, userSeed);
+		case BOOKMARK_SONG:
+			return PandoraRadio.bookmarkSongCall(stationId, musicId);
+		case BOOKMARK_ARTIST:
+			return PandoraRadio.bookmarkArtistCall(artistMusicId);
+		default:
+			throw new IllegalStateException("unknown feedback kind " + kind);
+		}
+	}
+
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/** Store row id, 0 until it has been saved. */
+	public long getId() {
+		return id;
+	}
+	/** The user it was given by. */
+	public String getAccount() {
+		return account;
+	}
+	public int getKind() {
+		return kind;
+	}
+	public String getStationId() {
+		return stationId;
+	}
+	public String getMusicId() {
+		return musicId;
+	}
+	public String getUserSeed() {
+		return userSeed;
+	}
+	public int getSongType() {
+		return songType;
+	}
+	public String getArtistMusicId() {
+		return artistMusicId;
+	}
+	public long getCreated() {
+		return created;
+	}
+	/** Failed sends so far. */
+	public int getAttempts() {
+		return attempts;
+	}
+	/** Earliest time (ms) of the next send. */
+	public long getNextAttempt() {
+		return nextAttempt;
+	}
+}
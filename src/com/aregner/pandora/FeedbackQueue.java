@@ -0,0 +1,314 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCFault;
+
+/* Write-behind queue for feedback.  offer() only records the feedback and returns; one
+ * background thread saves it to the Store and then sends everything in order through the
+ * PandoraRadio's pooled connection.  A send that fails is retried with exponential backoff,
+ * and whatever is left in the store when the process dies is picked up by the next queue
+ * built on it.
+ *
+ * Feedback that is still waiting is coalesced: rating a song again replaces the rating that
+ * hasn't gone out yet, so love then ban only ever sends the ban.
+ *
+ * Feedback is sent only as the user who gave it.  What another account left behind stays
+ * queued and stored until that user signs in again; anything saved without an account
+ * can't be sent as anyone and is thrown away when it is loaded.
+ */
+public class FeedbackQueue {
+
+	/** Keeps feedback across restarts.  Only ever called from the queue's own thread. */
+	public interface Store {
+		/** Everything saved and not deleted, oldest first. */
+		List<Feedback> loadFeedback();
+		/** Inserts feedback whose id is 0 and returns the new id, updates it otherwise. */
+		long saveFeedback(Feedback feedback);
+		void deleteFeedback(long id);
+	}
+
+	static final long BASE_BACKOFF = 5 * 1000;
+	static final long MAX_BACKOFF = 10 * 60 * 1000;
+	// a call the server keeps refusing is given up on, unreachable ones are kept
+	static final int MAX_FAULTS = 8;
+
+	private final PandoraRadio pandora;
+	private final Store store;
+	private final ScheduledExecutorService worker;
+	private final Random jitter = new Random();
+
+	// guarded by this
+	private final LinkedList<Feedback> pending = new LinkedList<Feedback>();
+	private final List<Feedback> coalesced = new ArrayList<Feedback>();
+	private ScheduledFuture<?> wakeup;
+	private long wakeupAt;
+
+	private final Runnable drain = new Runnable() {
+		public void run() {
+			try {
+				drain();
+			}
+			catch(RuntimeException e) {
+				// keep the thread alive for the next round
+				e.printStackTrace();
+			}
+		}
+	};
+
+	/** store may be null to keep feedback in memory only. */
+	public FeedbackQueue(PandoraRadio pandora, Store store) {
+		this.pandora = pandora;
+		this.store = store;
+		this.worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "FeedbackQueue");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		if(store != null) {
+			worker.execute(new Runnable() {
+				public void run() {
+					List<Feedback> saved = FeedbackQueue.this.store.loadFeedback();
+					synchronized(FeedbackQueue.this) {
+						// anything offered meanwhile is newer than all of it
+						Iterator<Feedback> old = saved.iterator();
+						while(old.hasNext()) {
+							Feedback feedback = old.next();
+							if(feedback.getAccount() == null) {
+								// saved before feedback was kept per user
+								old.remove();
+								coalesced.add(feedback);
+								continue;
+							}
+							for(Feedback newer : pending) {
+								if(newer.supersedes(feedback)) {
+									old.remove();
+									coalesced.add(feedback);
+									break;
+								}
+							}
+						}
+						pending.addAll(0, saved);
+					}
+				}
+			});
+		}
+		schedule(0);
+	}
+
+	public void rate(Station station, Song song, boolean rating) {
+		offer(Feedback.rate(pandora.getUser(), station, song, rating));
+	}
+
+	public void tired(Station station, Song song) {
+		offer(Feedback.tired(pandora.getUser(), station, song));
+	}
+
+	public void bookmarkSong(Station station, Song song) {
+		offer(Feedback.bookmarkSong(pandora.getUser(), station, song));
+	}
+
+	public void bookmarkArtist(Station station, Song song) {
+		offer(Feedback.bookmarkArtist(pandora.getUser(), station, song));
+	}
+
+	/** Queues feedback, replacing any waiting feedback it supersedes.  Never blocks.
+	 *  Feedback without an account is dropped, there is no one to send it as. */
+	public void offer(Feedback feedback) {
+		if(feedback.getAccount() == null) {
+			return;
+		}
+		synchronized(this) {
+			Iterator<Feedback> waiting = pending.iterator();
+			while(waiting.hasNext()) {
+				Feedback old = waiting.next();
+				if(feedback.supersedes(old)) {
+					waiting.remove();
+					coalesced.add(old);
+				}
+			}
+			pending.add(feedback);
+		}
+		schedule(0);
+	}
+
+	/** Sends what is waiting right away, e.g. after signing in or getting back online. */
+	public void retryNow() {
+		synchronized(this) {
+			for(Feedback feedback : pending) {
+				feedback.nextAttempt = 0;
+			}
+		}
+		schedule(0);
+	}
+
+	/** Feedback not sent yet. */
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	/** Stops the background thread.  Unsent feedback stays in the store. */
+	public void shutdown() {
+		worker.shutdown();
+	}
+
+	/* Wakes the worker after delay, unless it is already due to wake up sooner. */
+	private synchronized void schedule(long delay) {
+		long at = System.currentTimeMillis() + delay;
+		if(wakeup != null && !wakeup.isDone() && wakeupAt <= at) {
+			return;
+		}
+		if(wakeup != null) {
+			wakeup.cancel(false);
+		}
+		wakeupAt = at;
+		wakeup = worker.schedule(drain, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void drain() {
+		synchronized(this) {
+			// this run is the wakeup, the next one has to be scheduled anew
+			wakeup = null;
+		}
+		persist();
+		while(pandora.isAlive()) {
+			String account = pandora.getUser();
+			Feedback next = null;
+			synchronized(this) {
+				// other users' feedback waits for them to sign in
+				for(Feedback feedback : pending) {
+					if(feedback.belongsTo(account)) {
+						next = feedback;
+						break;
+					}
+				}
+				if(next == null) {
+					return;
+				}
+				long wait = next.nextAttempt - System.currentTimeMillis();
+				if(wait > 0) {
+					schedule(wait);
+					return;
+				}
+				// in flight, nothing coalesces with it any more
+				pending.remove(next);
+			}
+
+			try {
+				pandora.xmlrpcCallChecked(next.toCall(), null);
+				delete(next);
+			}
+			catch(XMLRPCException e) {
+				// a refused session isn't the feedback's fault, it isn't counted and the loop
+				// stops until retryNow()
+				if(pandora.isAlive()) {
+					next.attempts++;
+					if(e instanceof XMLRPCFault && next.attempts >= MAX_FAULTS) {
+						e.printStackTrace();
+						delete(next);
+						continue;
+					}
+					next.nextAttempt = System.currentTimeMillis() + backoff(next.attempts);
+				}
+				boolean superseded = false;
+				synchronized(this) {
+					for(Feedback newer : pending) {
+						superseded |= newer.supersedes(next);
+					}
+					if(!superseded) {
+						// stays at the head, the order feedback was given in is kept
+						pending.addFirst(next);
+					}
+				}
+				if(superseded) {
+					delete(next);
+				}
+				else if(store != null && next.id != 0) {
+					store.saveFeedback(next);
+				}
+				persist();
+			}
+		}
+		// not signed in, retryNow() gets things going again
+	}
+
+	/* Saves new feedback and forgets what was coalesced away. */
+	private void persist() {
+		if(store == null) {
+			synchronized(this) {
+				coalesced.clear();
+			}
+			return;
+		}
+		List<Feedback> unsaved = new ArrayList<Feedback>();
+		List<Feedback> gone;
+		synchronized(this) {
+			for(Feedback feedback : pending) {
+				if(feedback.id == 0) {
+					unsaved.add(feedback);
+				}
+			}
+			gone = new ArrayList<Feedback>(coalesced);
+			coalesced.clear();
+		}
+		for(int i=0; i<gone.size(); i++) {
+			delete(gone.get(i));
+		}
+		for(int i=0; i<unsaved.size(); i++) {
+			Feedback feedback = unsaved.get(i);
+			long id = store.saveFeedback(feedback);
+			boolean stillPending;
+			synchronized(this) {
+				feedback.id = id;
+				stillPending = pending.contains(feedback);
+			}
+			if(!stillPending) {
+				// coalesced away while it was being saved
+				delete(feedback);
+			}
+		}
+	}
+
+	private void delete(Feedback feedback) {
+		if(store != null && feedback.id != 0) {
+			store.deleteFeedback(feedback.id);
+		}
+	}
+
+	/* BASE_BACKOFF doubled for every failure up to MAX_BACKOFF, give or take a quarter so
+	 * a batch that failed together doesn't retry together. */
+	private long backoff(int attempts) {
+		long delay = BASE_BACKOFF << Math.min(attempts - 1, 16);
+		delay = Math.min(delay, MAX_BACKOFF);
+		return delay - delay / 4 + (long) (jitter.nextDouble() * (delay / 2));
+	}
+}
@@ -0,0 +1,230 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.http.client.methods.AbortableHttpRequest;
+import org.xmlrpc.android.XMLRPCException;
+
+/* Sends a call on the calling thread, and once more from another thread when the first
+ * request hasn't answered within a delay.  The first answer is the result and the other
+ * request is aborted; a failure only counts once neither request can answer any more.
+ */
+final class HedgedCall {
+
+	/* Sends the call once, handing its request to attempt as soon as it has been made. */
+	interface Sender {
+		Object send(Attempt attempt) throws XMLRPCException;
+	}
+
+	/* One of the two requests, which the other can abort. */
+	static final class Attempt implements PandoraTransport.RequestListener {
+		private final boolean hedge;
+		private AbortableHttpRequest request;
+		private boolean aborted;
+
+		Attempt(boolean hedge) {
+			this.hedge = hedge;
+		}
+
+		/** Whether this is the second request, sent because the first was slow. */
+		boolean isHedge() {
+			return hedge;
+		}
+
+		/** Whether the other request answered and this one was cancelled.  Set before the
+		 *  request is aborted, so the failure the abort causes already sees it. */
+		synchronized boolean isAborted() {
+			return aborted;
+		}
+
+		public void onRequest(AbortableHttpRequest request) {
+			synchronized(this) {
+				this.request = request;
+				if(!aborted)
+					return;
+			}
+			request.abort();
+		}
+
+		void abort() {
+			AbortableHttpRequest request;
+			synchronized(this) {
+				aborted = true;
+				request = this.request;
+			}
+			if(request != null)
+				request.abort();
+		}
+	}
+
+	private static final int WAITING = 0;
+	private static final int SENDING = 1;
+	private static final int DONE = 2;
+
+	private static ExecutorService hedges;
+
+	private final Sender sender;
+	private final long delay;
+	private final Attempt primary = new Attempt(false);
+	private final Attempt backup = new Attempt(true);
+
+	// guarded by this
+	private boolean decided;
+	private Object result;
+	private boolean primaryDone;
+	private int backupState = WAITING;
+
+	private HedgedCall(Sender sender, long delay) {
+		this.sender = sender;
+		this.delay = delay;
+	}
+
+	static Object send(Sender sender, long delay) throws XMLRPCException {
+		return new HedgedCall(sender, delay).run();
+	}
+
+	/* Hedges run on threads of their own: one waiting on a busy pool would be too late. */
+	private static synchronized ExecutorService getHedges() {
+		if(hedges == null) {
+			hedges = Executors.newCachedThreadPool(new ThreadFactory() {
+				private int count = 0;
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PandoraHedge-" + (++count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return hedges;
+	}
+
+	private Object run() throws XMLRPCException {
+		try {
+			getHedges().execute(new Runnable() {
+				public void run() {
+					runBackup();
+				}
+			});
+		}
+		catch(RejectedExecutionException e) {
+			// no hedge then, the call itself goes ahead
+			synchronized(this) {
+				backupState = DONE;
+			}
+		}
+
+		Object value = null;
+		XMLRPCException error = null;
+		try {
+			value = sender.send(primary);
+		}
+		catch(XMLRPCException e) {
+			error = e;
+		}
+		finally {
+			synchronized(this) {
+				primaryDone = true;
+				notifyAll();
+			}
+		}
+
+		boolean abortBackup = false;
+		synchronized(this) {
+			if(error == null && !decided) {
+				decided = true;
+				result = value;
+				abortBackup = backupState == SENDING;
+			}
+			// a failed request still has the hedge that was sent already
+			boolean interrupted = false;
+			while(!decided && backupState == SENDING && !interrupted) {
+				try {
+					wait();
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					interrupted = true;
+				}
+			}
+			if(!decided) {
+				throw error;
+			}
+			value = result;
+		}
+
+		if(abortBackup) {
+			backup.abort();
+		}
+		return value;
+	}
+
+	private void runBackup() {
+		synchronized(this) {
+			long until = System.currentTimeMillis() + delay;
+			long left = delay;
+			while(!primaryDone && left > 0) {
+				try {
+					wait(left);
+				}
+				catch(InterruptedException e) {
+					break;
+				}
+				left = until - System.currentTimeMillis();
+			}
+			if(primaryDone || left > 0) {
+				backupState = DONE;
+				notifyAll();
+				return;
+			}
+			backupState = SENDING;
+		}
+
+		Object value = null;
+		boolean answered = false;
+		try {
+			value = sender.send(backup);
+			answered = true;
+		}
+		catch(XMLRPCException e) {
+			// the primary request's failure is the one reported
+		}
+		catch(RuntimeException e) {
+			e.printStackTrace();
+		}
+		finally {
+			boolean abortPrimary = false;
+			synchronized(this) {
+				backupState = DONE;
+				if(answered && !decided) {
+					decided = true;
+					result = value;
+					abortPrimary = true;
+				}
+				notifyAll();
+			}
+			if(abortPrimary) {
+				primary.abort();
+			}
+		}
+	}
+}
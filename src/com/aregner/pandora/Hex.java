@@ -0,0 +1,86 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+/* Lower case hex encoding as used on the wire by the Pandora protocol.  All of the
+ * methods work on caller supplied arrays so no intermediate strings are created.
+ */
+public final class Hex {
+
+	private static final byte[] DIGITS = {
+		'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+	};
+
+	// digit value for every ASCII character, -1 for anything that isn't a hex digit
+	private static final byte[] VALUES = new byte[128];
+	static {
+		for(int i=0; i<VALUES.length; i++) {
+			VALUES[i] = -1;
+		}
+		for(int i=0; i<10; i++) {
+			VALUES['0' + i] = (byte) i;
+		}
+		for(int i=0; i<6; i++) {
+			VALUES['a' + i] = (byte) (10 + i);
+			VALUES['A' + i] = (byte) (10 + i);
+		}
+	}
+
+	private Hex() {
+	}
+
+	/** Writes the 2*length hex digits of src[offset..offset+length) as ASCII bytes into dst[dstOffset]. */
+	public static int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+		for(int end = offset + length; offset < end; offset++) {
+			int b = src[offset];
+			dst[dstOffset++] = DIGITS[(b >> 4) & 0x0f];
+			dst[dstOffset++] = DIGITS[b & 0x0f];
+		}
+		return length * 2;
+	}
+
+	/** Writes the 2*length hex digits of src[offset..offset+length) into dst[dstOffset]. */
+	public static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+		for(int end = offset + length; offset < end; offset++) {
+			int b = src[offset];
+			dst[dstOffset++] = (char) DIGITS[(b >> 4) & 0x0f];
+			dst[dstOffset++] = (char) DIGITS[b & 0x0f];
+		}
+		return length * 2;
+	}
+
+	/** Decodes the hex digits in src[start..end) into dst[dstOffset], returns the number of bytes written. */
+	public static int decode(CharSequence src, int start, int end, byte[] dst, int dstOffset) {
+		if(((end - start) & 1) != 0) {
+			throw new IllegalArgumentException("Odd number of hex digits: "+(end - start));
+		}
+		int written = 0;
+		for(int i=start; i<end; i+=2) {
+			dst[dstOffset + written++] = (byte) ((digit(src.charAt(i)) << 4) | digit(src.charAt(i+1)));
+		}
+		return written;
+	}
+
+	private static int digit(char c) {
+		int v = c < 128 ? VALUES[c] : -1;
+		if(v < 0) {
+			throw new IllegalArgumentException("Not a hex digit: '"+c+"'");
+		}
+		return v;
+	}
+}
@@ -0,0 +1,82 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/* Blowfish/ECB from the platform's javax.crypto provider.  Providers only accept a raw
+ * key, so this can't be built from pre-expanded P/S boxes like the ones in PandoraKeys.
+ */
+public class JceCipherEngine implements CipherEngine {
+
+	private static final String TRANSFORMATION = "Blowfish/ECB/NoPadding";
+
+	private final SecretKeySpec key;
+	private final String name;
+
+	// Cipher objects are not thread safe, so every thread gets its own pair
+	private final ThreadLocal<Cipher[]> ciphers = new ThreadLocal<Cipher[]>() {
+		@Override
+		protected Cipher[] initialValue() {
+			try {
+				return new Cipher[] { newCipher(Cipher.ENCRYPT_MODE), newCipher(Cipher.DECRYPT_MODE) };
+			} catch (GeneralSecurityException e) {
+				// the constructor already proved this works on this VM
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	public JceCipherEngine(byte[] rawKey) throws GeneralSecurityException {
+		key = new SecretKeySpec(rawKey, "Blowfish");
+		name = "jce-" + newCipher(Cipher.ENCRYPT_MODE).getProvider().getName();
+	}
+
+	private Cipher newCipher(int mode) throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+		cipher.init(mode, key);
+		return cipher;
+	}
+
+	public void encrypt(byte[] data, int offset, int length) {
+		cipher(ciphers.get()[0], data, offset, length);
+	}
+
+	public void decrypt(byte[] data, int offset, int length) {
+		cipher(ciphers.get()[1], data, offset, length);
+	}
+
+	private static void cipher(Cipher cipher, byte[] data, int offset, int length) {
+		if(length % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException("Attempted to cipher data of invalid length: "+length);
+		}
+		try {
+			// doFinal() is documented to be copy-safe when input and output share a buffer
+			cipher.doFinal(data, offset, length, data, offset);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+}
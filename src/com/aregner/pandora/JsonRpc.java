@@ -0,0 +1,75 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+
+import org.apache.http.client.methods.HttpPost;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCFault;
+
+/* The same client for Pandora's JSON API: requests go out the same way, with the same
+ * deadlines, compression and stats, but the answer is {"stat": "ok", "result": ...}.  The
+ * result is returned as a JSONObject, "fail" answers are thrown as XMLRPCFaults with the
+ * API's error code.
+ */
+public class JsonRpc extends XmlRpc {
+
+	public JsonRpc(String url) {
+		super(url);
+	}
+
+	/* The default headers say text/xml, and a header on the request is sent instead of the
+	 * entity's content type. */
+	@Override
+	protected HttpPost newPost(URI uri) {
+		HttpPost post = super.newPost(uri);
+		post.setHeader("Content-Type", "text/plain");
+		return post;
+	}
+
+	@Override
+	protected Object parseResponse(InputStream content, String charset, IXMLRPCResultReader resultReader) throws XMLRPCException, IOException {
+		Reader reader = new InputStreamReader(content, charset != null ? charset : "UTF-8");
+		StringBuilder text = new StringBuilder(1024);
+		char[] buffer = new char[1024];
+		for(int n; (n = reader.read(buffer)) != -1; ) {
+			text.append(buffer, 0, n);
+		}
+
+		try {
+			JSONObject response = new JSONObject(text.toString());
+			if(!"ok".equals(response.optString("stat"))) {
+				throw new XMLRPCFault(response.optString("message", "request failed"), response.optInt("code", -1));
+			}
+			JSONObject result = response.optJSONObject("result");
+			// calls that only do something answer without a result
+			return result != null ? result : new JSONObject();
+		} catch (JSONException e) {
+			throw new XMLRPCException("Bad JSON response", e);
+		}
+	}
+}
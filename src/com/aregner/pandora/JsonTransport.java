@@ -0,0 +1,387 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCCallStats;
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCFault;
+
+/* Pandora's JSON API (v5).  Signing in is a partner login followed by a user login; after
+ * that every body is Blowfish encrypted with the partner's key and carries the session token
+ * and the server's clock.  The v32 calls PandoraRadio makes are translated one by one, and
+ * answered with the Songs, Stations and maps the XML-RPC transport gives, so nothing above
+ * this class knows which API it talks to.  Ids and tokens of one API mean nothing to the
+ * other though: song ids here are track tokens.
+ */
+public class JsonTransport implements PandoraTransport {
+
+	public static final String DEFAULT_URL = "https://tuner.pandora.com/services/json/";
+	public static final String API_VERSION = "5";
+
+	// the session token has expired, or was never valid
+	public static final int INVALID_AUTH_TOKEN = 1001;
+
+	/* A device class the API knows, each has its own login and keys. */
+	public static final class Partner {
+		public static final Partner ANDROID = new Partner("android", "AC7IBG09A3DTSYM4R41UJWL07VLN8JI7",
+				"android-generic", "6#26FRL$ZWD", "R=U!LH$O2B#");
+
+		final String username;
+		final String password;
+		final String deviceModel;
+		final String encryptKey;
+		final String decryptKey;
+
+		public Partner(String username, String password, String deviceModel, String encryptKey, String decryptKey) {
+			this.username = username;
+			this.password = password;
+			this.deviceModel = deviceModel;
+			this.encryptKey = encryptKey;
+			this.decryptKey = decryptKey;
+		}
+	}
+
+	/* What signing in gave, replaced as a whole by the next sign in. */
+	private static final class Session {
+		final String partnerId;
+		final String userId;
+		final String userAuthToken;
+		// server clock minus ours, in seconds
+		final long syncOffset;
+
+		Session(String partnerId, String userId, String userAuthToken, long syncOffset) {
+			this.partnerId = partnerId;
+			this.userId = userId;
+			this.userAuthToken = userAuthToken;
+			this.syncOffset = syncOffset;
+		}
+	}
+
+	private final PandoraRadio pandora;
+	private final String url;
+	private final Partner partner;
+	private final JsonRpc rpc;
+	private final CipherEngine encryptor;
+	private final CipherEngine decryptor;
+	private volatile ParallelEcb parallel = ParallelEcb.getDefault();
+	private volatile Session session;
+	// playlists and feedback want the station token, calls only know the station id
+	private final Map<String,String> stationTokens = new ConcurrentHashMap<String,String>();
+
+	public JsonTransport(PandoraRadio pandora) {
+		this(pandora, DEFAULT_URL, Partner.ANDROID);
+	}
+
+	public JsonTransport(PandoraRadio pandora, String url, Partner partner) {
+		this.pandora = pandora;
+		this.url = url;
+		this.partner = partner;
+		rpc = new JsonRpc(url);
+		rpc.addHeader("User-agent", PandoraRadio.USER_AGENT);
+		encryptor = CipherEngines.forKey(utf8(partner.encryptKey));
+		decryptor = CipherEngines.forKey(utf8(partner.decryptKey));
+	}
+
+	/** Controls when large request bodies are encrypted on several cores. */
+	public void setParallelEcb(ParallelEcb parallel) {
+		this.parallel = parallel;
+	}
+
+	public Object send(RpcCall call, IXMLRPCResultReader resultReader, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException {
+		String method = call.getMethod();
+		try {
+			if(method.equals("listener.authenticateListener")) {
+				return signIn((String) call.getArgument(0), (String) call.getArgument(1), timeoutMillis, stats, listener);
+			}
+
+			Session session = this.session;
+			if(session == null) {
+				throw new XMLRPCFault("Not signed in", INVALID_AUTH_TOKEN);
+			}
+
+			JSONObject body = new JSONObject();
+			if(method.equals("station.getStations")) {
+				return stations(call(session, "user.getStationList", body, timeoutMillis, stats, listener));
+			}
+			else if(method.equals("playlist.getFragment")) {
+				body.put("stationToken", stationToken(session, call.getArgument(0), timeoutMillis, stats, listener));
+				return songs(call(session, "station.getPlaylist", body, timeoutMillis, stats, listener),
+						(String) call.getArgument(4));
+			}
+			else if(method.equals("station.addFeedback")) {
+				body.put("stationToken", stationToken(session, call.getArgument(0), timeoutMillis, stats, listener));
+				body.put("trackToken", call.getArgument(1));
+				body.put("isPositive", call.getArgument(4));
+				call(session, "station.addFeedback", body, timeoutMillis, stats, listener);
+			}
+			else if(method.equals("listener.addTiredSong")) {
+				body.put("trackToken", call.getArgument(0));
+				call(session, "user.sleepSong", body, timeoutMillis, stats, listener);
+			}
+			else if(method.equals("station.createBookmark")) {
+				body.put("trackToken", call.getArgument(1));
+				call(session, "bookmark.addSongBookmark", body, timeoutMillis, stats, listener);
+			}
+			else if(method.equals("station.createArtistBookmark")) {
+				// the artist of the track, there are no artist ids in this API
+				body.put("trackToken", call.getArgument(0));
+				call(session, "bookmark.addArtistBookmark", body, timeoutMillis, stats, listener);
+			}
+			else {
+				throw new XMLRPCException("No JSON API call for " + method);
+			}
+			return Boolean.TRUE;
+		}
+		catch(JSONException e) {
+			throw new XMLRPCException(e);
+		}
+	}
+
+	public String getSession() {
+		Session session = this.session;
+		return session != null ? session.userAuthToken : null;
+	}
+
+	public void signOut() {
+		session = null;
+	}
+
+	/* Partner login then user login, answering like authenticateListener does. */
+	private Map<String,Object> signIn(String user, String password, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException, JSONException {
+		session = null;
+
+		JSONObject body = new JSONObject();
+		body.put("username", partner.username);
+		body.put("password", partner.password);
+		body.put("deviceModel", partner.deviceModel);
+		body.put("version", API_VERSION);
+		JSONObject partnerResult = request("auth.partnerLogin", "", body, false, timeoutMillis, stats, listener);
+
+		String partnerId = partnerResult.getString("partnerId");
+		String partnerAuthToken = partnerResult.getString("partnerAuthToken");
+		long syncOffset = decryptSyncTime(partnerResult.getString("syncTime")) - System.currentTimeMillis()/1000L;
+
+		body = new JSONObject();
+		body.put("loginType", "user");
+		body.put("username", user);
+		body.put("password", password);
+		body.put("partnerAuthToken", partnerAuthToken);
+		body.put("syncTime", System.currentTimeMillis()/1000L + syncOffset);
+		JSONObject userResult = request("auth.userLogin",
+				"&auth_token=" + encode(partnerAuthToken) + "&partner_id=" + encode(partnerId),
+				body, true, timeoutMillis, stats, listener);
+
+		Session session = new Session(partnerId, userResult.getString("userId"),
+				userResult.getString("userAuthToken"), syncOffset);
+		this.session = session;
+
+		Map<String,Object> userInfo = new HashMap<String,Object>();
+		userInfo.put("authToken", session.userAuthToken);
+		userInfo.put("listenerId", session.userId);
+		return userInfo;
+	}
+
+	/* The server's clock: four bytes of junk, then the time in seconds, encrypted. */
+	private long decryptSyncTime(String hex) throws XMLRPCException {
+		byte[] plain = new byte[PandoraRadio.decryptedCapacity(hex.length())];
+		int length = Hex.decode(hex, 0, hex.length() & ~1, plain, 0);
+		int padded = (length + 7) & ~7;
+		decryptor.decrypt(plain, 0, padded);
+
+		long syncTime = 0;
+		int digits = 0;
+		for(int i=4; i<length && plain[i] >= '0' && plain[i] <= '9'; i++, digits++) {
+			syncTime = syncTime * 10 + (plain[i] - '0');
+		}
+		if(digits == 0) {
+			throw new XMLRPCException("Bad syncTime from partner login");
+		}
+		return syncTime;
+	}
+
+	/* A call made with the session: its tokens go in the query, and in the encrypted body. */
+	private JSONObject call(Session session, String method, JSONObject body, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException, JSONException {
+		body.put("userAuthToken", session.userAuthToken);
+		body.put("syncTime", System.currentTimeMillis()/1000L + session.syncOffset);
+		String query = "&auth_token=" + encode(session.userAuthToken) + "&partner_id=" + encode(session.partnerId)
+				+ "&user_id=" + encode(session.userId);
+		try {
+			return request(method, query, body, true, timeoutMillis, stats, listener);
+		}
+		catch(XMLRPCFault e) {
+			if(e.getFaultCode() == INVALID_AUTH_TOKEN && this.session == session) {
+				// expired: nobody is signed in any more, so isAlive() says so
+				this.session = null;
+			}
+			throw e;
+		}
+	}
+
+	private JSONObject request(String method, String query, JSONObject body, boolean encrypted, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException {
+		long start = System.nanoTime();
+		byte[] plain = utf8(body.toString());
+		AbstractHttpEntity entity = encrypted
+				? new EncryptedEntity(encryptor, plain, 0, plain.length, parallel)
+				: new ByteArrayEntity(plain);
+
+		HttpPost request = rpc.newRequest(url + "?method=" + method + query, entity);
+		if(listener != null) {
+			listener.onRequest(request);
+		}
+		stats.addEncodeNanos(System.nanoTime() - start, false);
+		try {
+			return (JSONObject) rpc.callWithRequest(request, null, timeoutMillis, stats);
+		}
+		finally {
+			if(encrypted) {
+				// encrypted while it's written, inside the exchange
+				stats.addEncodeNanos(Math.min(((EncryptedEntity) entity).getWriteNanos(), stats.getExchangeNanos()), true);
+			}
+		}
+	}
+
+	/* Stations can come from the response cache without this transport seeing the list, the
+	 * tokens are fetched again then. */
+	private String stationToken(Session session, Object stationId, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException, JSONException {
+		String token = stationTokens.get(stationId);
+		if(token == null) {
+			stations(call(session, "user.getStationList", new JSONObject(), timeoutMillis, stats, listener));
+			token = stationTokens.get(stationId);
+			if(token == null) {
+				throw new XMLRPCException("No station " + stationId + " in the station list");
+			}
+		}
+		return token;
+	}
+
+	private Object[] stations(JSONObject result) {
+		JSONArray list = result.optJSONArray("stations");
+		int count = list != null ? list.length() : 0;
+		Object[] stations = new Object[count];
+		for(int s=0; s<count; s++) {
+			JSONObject station = list.optJSONObject(s);
+			String id = station.optString("stationId");
+			String token = station.optString("stationToken", id);
+			stationTokens.put(id, token);
+
+			Map<String,Object> d = new HashMap<String,Object>();
+			d.put("stationId", id);
+			d.put("stationIdToken", token);
+			d.put("isCreator", Boolean.valueOf(!station.optBoolean("isShared")));
+			d.put("isQuickMix", Boolean.valueOf(station.optBoolean("isQuickMix")));
+			d.put("stationName", station.optString("stationName"));
+			stations[s] = new Station(d, pandora);
+		}
+		return stations;
+	}
+
+	private Object[] songs(JSONObject result, String format) {
+		JSONArray items = result.optJSONArray("items");
+		int count = items != null ? items.length() : 0;
+		Object[] songs = new Object[count];
+		int n = 0;
+		for(int i=0; i<count; i++) {
+			JSONObject item = items.optJSONObject(i);
+			// ads come as items with nothing but an adToken
+			if(item == null || !item.has("trackToken")) {
+				continue;
+			}
+			String trackToken = item.optString("trackToken");
+
+			Map<String,Object> d = new HashMap<String,Object>();
+			d.put("albumTitle", item.optString("albumName"));
+			d.put("artistSummary", item.optString("artistName"));
+			d.put("artistMusicId", trackToken);
+			d.put("audioURL", audioUrl(item.optJSONObject("audioUrlMap"), format));
+			d.put("fileGain", item.optString("trackGain"));
+			d.put("identity", trackToken);
+			d.put("musicId", trackToken);
+			d.put("rating", Integer.valueOf(item.optInt("songRating")));
+			d.put("stationId", item.optString("stationId"));
+			d.put("songTitle", item.optString("songName"));
+			d.put("userSeed", "");
+			d.put("songDetailURL", item.optString("songDetailUrl"));
+			d.put("albumDetailURL", item.optString("albumDetailUrl"));
+			d.put("artRadio", item.optString("albumArtUrl"));
+			d.put("songType", Integer.valueOf(0));
+			songs[n++] = new Song(d, pandora, false);
+		}
+
+		Object[] trimmed = new Object[n];
+		System.arraycopy(songs, 0, trimmed, 0, n);
+		return trimmed;
+	}
+
+	/* The quality closest to what the v32 format asked for, or whichever there is. */
+	private static String audioUrl(JSONObject urls, String format) {
+		if(urls == null) {
+			return null;
+		}
+		String quality;
+		if("mp3-hifi".equals(format))
+			quality = "highQuality";
+		else if("mp3".equals(format))
+			quality = "mediumQuality";
+		else
+			quality = "lowQuality";
+
+		String[] order = { quality, "mediumQuality", "highQuality", "lowQuality" };
+		for(int i=0; i<order.length; i++) {
+			JSONObject audio = urls.optJSONObject(order[i]);
+			if(audio != null && audio.has("audioUrl")) {
+				return audio.optString("audioUrl");
+			}
+		}
+		return null;
+	}
+
+	private static String encode(String v) {
+		try {
+			return URLEncoder.encode(v, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every VM is required to support UTF-8
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static byte[] utf8(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
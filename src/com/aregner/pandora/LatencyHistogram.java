@@ -0,0 +1,144 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Latencies in microseconds, counted in log-linear buckets the way HdrHistogram does it:
+ * every power of two is split into 8 buckets, so any percentile read back is within 12.5%
+ * of the real value, from 1 us up to about an hour, in 240 counters.  Recording is a
+ * couple of shifts and one atomic add, without locks.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// values below this get a bucket each
+	private static final int LINEAR = 2 * SUB_BUCKETS;
+	private static final int MAX_EXPONENT = 31;
+	static final int BUCKETS = LINEAR + (MAX_EXPONENT - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final StripedCounter sum = new StripedCounter();
+	private final AtomicLong max = new AtomicLong();
+
+	public void recordNanos(long nanos) {
+		record(nanos / 1000L);
+	}
+
+	/** Counts one latency of micros microseconds. */
+	public void record(long micros) {
+		if(micros < 0) {
+			micros = 0;
+		}
+		counts.incrementAndGet(bucketOf(micros));
+		sum.add(micros);
+
+		long m;
+		while(micros > (m = max.get()) && !max.compareAndSet(m, micros)) {
+			// lost a race with a larger value being recorded, try again
+		}
+	}
+
+	static int bucketOf(long v) {
+		if(v < LINEAR) {
+			return (int) v;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(v);
+		if(exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	/* The largest value that lands in bucket. */
+	static long highestIn(int bucket) {
+		if(bucket < LINEAR) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+		int sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long low = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return low + (1L << (exponent - SUB_BITS)) - 1;
+	}
+
+	/** A copy of the counts as they are now. */
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		long count = 0;
+		for(int b=0; b<BUCKETS; b++) {
+			copy[b] = counts.get(b);
+			count += copy[b];
+		}
+		return new Snapshot(copy, count, sum.get(), max.get());
+	}
+
+	public void reset() {
+		for(int b=0; b<BUCKETS; b++) {
+			counts.set(b, 0);
+		}
+		sum.reset();
+		max.set(0);
+	}
+
+	/* Counts of a histogram at one moment, in microseconds.  Taken while latencies are
+	 * being recorded the numbers can be a few calls apart from each other. */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/** The latency that percentile (0 to 100) of the calls took at most. */
+		public long getPercentile(double percentile) {
+			if(count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+			rank = Math.max(1, rank);
+			long seen = 0;
+			for(int b=0; b<counts.length; b++) {
+				seen += counts[b];
+				if(seen >= rank) {
+					return Math.min(highestIn(b), max);
+				}
+			}
+			return max;
+		}
+	}
+}
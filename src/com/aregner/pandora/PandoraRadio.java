@@ -24,144 +24,286 @@ package com.aregner.pandora;
 
 //import java.io.Console; //Not supported by android's JVM - used for testing this class with java6 on PC/Mac
 
-import java.net.URLEncoder;
+import java.io.UnsupportedEncodingException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Vector;
-
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.xmlrpc.android.IXMLRPCElementListener;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCCallStats;
 import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCFault;
+import org.xmlrpc.android.XMLRPCMemberNames;
+import org.xmlrpc.android.XMLRPCStructReader;
+import org.xmlrpc.android.XMLRPCTimeoutException;
 
 
 public class PandoraRadio {
 
 	public static final String PROTOCOL_VERSION = "32";
-	private static final String RPC_URL = "http://www.pandora.com/radio/xmlrpc/v"+PROTOCOL_VERSION+"?";
-	private static final String USER_AGENT = "com.aregner.pandora/0.1";
+	static final String USER_AGENT = "com.aregner.pandora/0.1";
 
 	public static final long PLAYLIST_VALIDITY_TIME = 3600 * 3;
 	public static final String DEFAULT_AUDIO_FORMAT = "aacplus";
 
-	private static final Vector<Object> EMPTY_ARGS = new Vector<Object>();
+	private static final RpcCall GET_STATIONS = RpcCall.builder("station.getStations").idempotent().build();
+	// not a call: art from the last playlist of a station, kept in the response cache
+	private static final String STATION_IMAGE_URL = "station.imageUrl";
+
+	// the station list is shown straight from the cache, and refreshed after 5 minutes
+	private static final long STATIONS_FRESH = 5 * 60 * 1000L;
+	private static final long STATIONS_STALE = 7 * 24 * 3600 * 1000L;
+	private static final long STATION_IMAGE_URL_FRESH = 30 * 24 * 3600 * 1000L;
+
+	// the next song waits on this one, so it gets a tighter deadline and is hedged
+	private static final String GET_FRAGMENT = "playlist.getFragment";
+	private static final long FRAGMENT_TIMEOUT = 10 * 1000;
+	private static final long FRAGMENT_MIN_TIMEOUT = 2 * 1000;
+	private static final long FRAGMENT_MAX_TIMEOUT = 20 * 1000;
+
+	// background calls: a couple at a time, and only so many waiting
+	private static final int RPC_THREADS = 2;
+	private static final int RPC_QUEUE = 32;
+	private static Executor defaultExecutor;
+
+	// every song and station struct repeats these, they are shared rather than copied
+	static {
+		XMLRPCMemberNames.register(
+			"authToken", "webAuthToken", "listenerId",
+			"adToken", "albumArtUrl", "albumDetailURL", "albumTitle", "allowSkip", "allowTired",
+			"amazonAlbumAsin", "artRadio", "artistArtUrl", "artistDetailURL", "artistMusicId",
+			"artistSummary", "audioEncoding", "audioURL", "fileGain", "identity", "itunesUrl",
+			"musicId", "onTour", "rating", "requiresCleanAds", "songDetailURL", "songTitle",
+			"songType", "stationId", "trackToken", "userSeed",
+			"allowAddMusic", "allowRename", "isCreator", "isQuickMix", "isShared",
+			"originalStationId", "quickMixStationIds", "stationDetailURL", "stationIdToken",
+			"stationName");
+	}
 
-	private XmlRpc xmlrpc;
-	private Blowfish blowfish_encode;
-	private Blowfish blowfish_decode;
-	private String authToken;
-	private String rid;
-	private String webAuthToken;
-	private ArrayList<Station> stations;
+	private volatile PandoraTransport transport;
+	private PandoraKeys keys;
+	private CipherEngine blowfish_encode;
+	private CipherEngine blowfish_decode;
+	private ParallelEcb parallel = ParallelEcb.getDefault();
+	private volatile String webAuthToken;
+	// who the last successful sign-in was for, until disconnect(), cached results are
+	// kept per user
+	private volatile String user;
+	private volatile ArrayList<Station> stations;
+	private volatile Executor executor = getDefaultExecutor();
+	private volatile ResponseCache cache = newResponseCache(null);
+	// identical idempotent calls made at the same time share one request
+	private final SingleFlight<Object> inFlight = new SingleFlight<Object>();
+	private volatile TransportPolicy policy = newTransportPolicy();
+	private final RpcMetrics metrics = new RpcMetrics();
+
+	// responses are bound straight into Songs and Stations, unless turned off
+	private boolean directBinding = true;
+	private final Song.Binder songBinder = new Song.Binder(this);
+	private final IXMLRPCResultReader playlistReader = XMLRPCStructReader.arrayOf(songBinder);
+	private final IXMLRPCResultReader stationsReader = XMLRPCStructReader.arrayOf(new Station.Binder(this));
 
 	public PandoraRadio() {
-		xmlrpc = new XmlRpc(RPC_URL);
-		xmlrpc.addHeader("User-agent", USER_AGENT);
-
-		blowfish_encode = new Blowfish(PandoraKeys.out_key_p, PandoraKeys.out_key_s);
-		blowfish_decode = new Blowfish(PandoraKeys.in_key_p, PandoraKeys.in_key_s);
+		transport = new XmlRpcTransport(this);
+		checkKeys();
 	}
 
-	private String pad(String s, int l) {
-		String result = s;
-		while(l - s.length() > 0) {
-			result += '\0';
-			l--;
-		}
-		return result;
-	}
-
-	private String fromHex(String hexText) {
-		String decodedText=null;
-		String chunk=null;
-		if(hexText!=null && hexText.length()>0) {
-			int numBytes = hexText.length()/2;
-			char[] rawToByte = new char[numBytes];
-			int offset=0;
-			for(int i =0; i <numBytes; i++) {
-				chunk = hexText.substring(offset,offset+2);
-				offset+=2;
-				rawToByte[i] = (char) (Integer.parseInt(chunk,16) & 0x000000FF);
-			}
-			decodedText= new String(rawToByte);
+	/** Shared pool of daemon threads the ...Async() methods run on by default. Calls
+	 *  beyond what it can queue fail with a RejectedExecutionException. */
+	public static synchronized Executor getDefaultExecutor() {
+		if(defaultExecutor == null) {
+			defaultExecutor = new ThreadPoolExecutor(RPC_THREADS, RPC_THREADS, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(RPC_QUEUE), new ThreadFactory() {
+				private int count = 0;
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PandoraRpc-" + (++count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 		}
-		return decodedText;
+		return defaultExecutor;
 	}
 
-	public String pandoraEncrypt(String s) {
-		int length = s.length();
-		StringBuilder result = new StringBuilder( length * 2 );
-		int i8 = 0;
-		for(int i=0; i<length; i+=8) {
-			i8 = (i + 8 >= length) ? (length) : (i + 8);
-			String substring = s.substring(i, i8);
-			String padded = pad(substring, 8);
-			long[] blownstring = blowfish_encode.encrypt(padded.toCharArray());
-			for(int c=0; c<blownstring.length; c++) {
-				if(blownstring[c] < 0x10)
-					result.append("0");
-				result.append(Integer.toHexString((int)blownstring[c]));
-			}
+	/** Where the ...Async() methods run their calls. */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/** A cache with the time to live of every call PandoraRadio caches set, store may be
+	 *  null to keep it in memory only. */
+	public static ResponseCache newResponseCache(ResponseCache.Store store) {
+		ResponseCache cache = new ResponseCache(ResponseCache.DEFAULT_MAX_ENTRIES, store);
+		cache.setTtl(GET_STATIONS.getMethod(), STATIONS_FRESH, STATIONS_STALE);
+		cache.setTtl(STATION_IMAGE_URL, STATION_IMAGE_URL_FRESH, 0);
+		return cache;
+	}
+
+	/** A policy with the deadlines and hedging PandoraRadio uses by default. */
+	public static TransportPolicy newTransportPolicy() {
+		TransportPolicy policy = new TransportPolicy();
+		policy.setTimeout(GET_FRAGMENT, FRAGMENT_TIMEOUT, FRAGMENT_MIN_TIMEOUT, FRAGMENT_MAX_TIMEOUT);
+		policy.setHedging(GET_FRAGMENT, true);
+		return policy;
+	}
+
+	/** Which API calls go to, XmlRpcTransport by default.  Sign in again after changing it:
+	 *  sessions, station and song ids all belong to one transport. */
+	public void setTransport(PandoraTransport transport) {
+		this.transport = transport;
+	}
+
+	public PandoraTransport getTransport() {
+		return transport;
+	}
+
+	/** Deadlines, retries and hedging of calls. */
+	public void setTransportPolicy(TransportPolicy policy) {
+		this.policy = policy;
+	}
+
+	public TransportPolicy getTransportPolicy() {
+		return policy;
+	}
+
+	/** Latencies, sizes and failures of every call made so far, per method. */
+	public RpcMetrics getMetrics() {
+		return metrics;
+	}
+
+	/** Where results of calls that don't change anything are kept. */
+	public void setResponseCache(ResponseCache cache) {
+		this.cache = cache;
+	}
+
+	public ResponseCache getResponseCache() {
+		return cache;
+	}
+
+	private String cacheKey(String key) {
+		return user + '/' + key;
+	}
+
+	/* Cached results are only handed out, and kept, while signed in. */
+	private boolean cacheable() {
+		return user != null && isAlive();
+	}
+
+	<T> RpcFuture<T> submit(Callable<T> task) {
+		return RpcFuture.submit(executor, task);
+	}
+
+	/* Rebuilds the ciphers when a new key set was installed with PandoraKeys.install() */
+	private void checkKeys() {
+		PandoraKeys latest = PandoraKeys.getInstance();
+		if(latest != keys) {
+			blowfish_encode = latest.newEncryptor();
+			blowfish_decode = latest.newDecryptor();
+			keys = latest;
 		}
-		return result.toString();
 	}
 
-	public String pandoraDecrypt(String s) {
-		StringBuilder result = new StringBuilder();
-		int length = s.length();
-		int i16 = 0;
-		for(int i=0; i<length; i+=16) {
-			i16 = (i + 16 > length) ? (length - 1) : (i + 16);
-			result.append( blowfish_decode.decrypt( pad( fromHex( s.substring(i, i16)), 8).toCharArray()));
+	private static byte[] utf8(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every VM is required to support UTF-8
+			throw new RuntimeException(e);
 		}
-		return result.toString().trim();
 	}
 
-	private String formatUrlArg(boolean v) {
-		return v ? "true" : "false";
+	/* A request body encrypted with the current keys as it's written. */
+	EncryptedEntity newEncryptedEntity(byte[] data, int offset, int length) {
+		checkKeys();
+		return new EncryptedEntity(blowfish_encode, data, offset, length, parallel);
 	}
-	private String formatUrlArg(int v) {
-		return String.valueOf(v);
+
+	public String pandoraEncrypt(String s) {
+		byte[] plain = utf8(s);
+		char[] hex = new char[(int) BlowfishHexOutputStream.encodedLength(plain.length)];
+
+		checkKeys();
+		parallel.encryptToHex(blowfish_encode, plain, 0, plain.length, hex, 0);
+		return new String(hex);
 	}
-	private String formatUrlArg(long v) {
-		return String.valueOf(v);
+
+	/** Turns direct binding of playlists and stations off, so they go through maps again. */
+	public void setDirectBinding(boolean directBinding) {
+		this.directBinding = directBinding;
 	}
-	private String formatUrlArg(float v) {
-		return String.valueOf(v);
+
+	/** Reads a playlist.getFragment result straight into Songs, null without direct binding. */
+	public IXMLRPCResultReader getPlaylistReader() {
+		return directBinding ? playlistReader : null;
 	}
-	private String formatUrlArg(double v) {
-		return String.valueOf(v);
+
+	/** Reads a station.getStations result straight into Stations, null without direct binding. */
+	public IXMLRPCResultReader getStationsReader() {
+		return directBinding ? stationsReader : null;
 	}
-	private String formatUrlArg(char v) {
-		return String.valueOf(v);
+
+	/* Same as above, but songs go to listener as they are read.  Without direct binding
+	 * there's nothing to stream, the caller has to tell the listener afterwards. */
+	IXMLRPCResultReader getPlaylistReader(IXMLRPCElementListener<? super Song> listener) {
+		if(listener == null || !directBinding) {
+			return getPlaylistReader();
+		}
+		return XMLRPCStructReader.arrayOf(songBinder, listener);
 	}
-	private String formatUrlArg(short v) {
-		return String.valueOf(v);
+
+	/** Controls when large request bodies are encrypted on several cores. */
+	public void setParallelEcb(ParallelEcb parallel) {
+		this.parallel = parallel;
 	}
-	private String formatUrlArg(Object v) {
-		return URLEncoder.encode(v.toString());
+
+	public String pandoraDecrypt(String s) {
+		byte[] plain = new byte[decryptedCapacity(s.length())];
+		int length = pandoraDecrypt(s, 0, s.length(), plain, 0);
+
+		char[] chars = new char[length];
+		for(int i=0; i<length; i++) {
+			chars[i] = (char) (plain[i] & 0xff);
+		}
+		return new String(chars).trim();
 	}
-	private String formatUrlArg(Object[] v) {
-		StringBuilder result = new StringBuilder();
-		for(int i=0; i<v.length; i++) {
-			result.append(formatUrlArg(v[i]));
-			if(i < v.length - 1)
-				result.append("%2C");
+
+	/** Size of the buffer pandoraDecrypt() needs for hexLength characters of cipher text. */
+	public static int decryptedCapacity(int hexLength) {
+		return ((hexLength / 2 + 7) / 8) * 8;
+	}
+
+	public int pandoraDecrypt(char[] s, int start, int end, byte[] out, int offset) {
+		return pandoraDecrypt(CharBuffer.wrap(s), start, end, out, offset);
+	}
+
+	/** Decrypts the hex cipher text in s[start..end) into out[offset] without creating any
+	 *  strings.  out needs room for decryptedCapacity(end - start) bytes, the returned
+	 *  length excludes the trailing zero padding. */
+	public int pandoraDecrypt(CharSequence s, int start, int end, byte[] out, int offset) {
+		int length = Hex.decode(s, start, start + ((end - start) & ~1), out, offset);
+
+		// a short final block is zero padded, like the server does on its side
+		int padded = (length + 7) & ~7;
+		for(int i=offset+length; i<offset+padded; i++) {
+			out[i] = 0;
 		}
-		return result.toString();
-	}
-	private String formatUrlArg(Iterator<?> v) {
-		StringBuilder result = new StringBuilder();
-		while(v.hasNext()) {
-			result.append(formatUrlArg(v.next()));
-			if(v.hasNext())
-				result.append("%2C");
+		checkKeys();
+		blowfish_decode.decrypt(out, offset, padded);
+
+		while(padded > 0 && (out[offset + padded - 1] & 0xff) <= ' ') {
+			padded--;
 		}
-		return result.toString();
-	}
-	private String formatUrlArg(Collection<?> v) {
-		return formatUrlArg(v.iterator());
+		return padded;
 	}
 
 	/*public static void printXmlRpc(String xml) {
@@ -169,102 +311,252 @@ public class PandoraRadio {
 		System.err.println(xml);
 	}*/
 	
-	@SuppressWarnings("unchecked")
-	private Object xmlrpcCall(String method, Vector<Object> args, Vector<Object> urlArgs) {
-		if(urlArgs == null)
-			urlArgs = (Vector<Object>) args.clone();
-
-		args.add(0, new Long(System.currentTimeMillis()/1000L));
-		if(authToken != null)
-			args.add(1, authToken);
-
-		String xml = XmlRpc.makeCall(method, args);
-		//printXmlRpc(xml);
-		String data = pandoraEncrypt(xml);
-
-		ArrayList<String> urlArgStrings = new ArrayList<String>();
-		if(rid != null) {
-			urlArgStrings.add("rid="+rid);
-		}
-		method = method.substring(method.lastIndexOf('.')+1);
-		urlArgStrings.add("method="+method);
-		Iterator<Object> urlArgsIter = urlArgs.iterator();
-		int count = 1;
-		while(urlArgsIter.hasNext()) {
-			urlArgStrings.add("arg"+(count++)+"="+formatUrlArg(urlArgsIter.next()));
-		}
-
-		StringBuilder url = new StringBuilder(RPC_URL);
-		Iterator<String> argIter = urlArgStrings.iterator();
-		while(argIter.hasNext()) {
-			url.append(argIter.next());
-			if(argIter.hasNext())
-				url.append("&");
-		}
+	Object xmlrpcCall(RpcCall call) {
+		return xmlrpcCall(call, null);
+	}
 
-		Object result = null;
+	/* Same as above, with the result read by resultReader (null for maps and arrays). */
+	Object xmlrpcCall(RpcCall call, IXMLRPCResultReader resultReader) {
 		try {
-			result = xmlrpc.callWithBody(url.toString(), data);
+			return xmlrpcCallChecked(call, resultReader);
 		} catch (XMLRPCException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/* Same as above, but failures are thrown: XMLRPCFault when the server refused the call,
+	 * plain XMLRPCException when it couldn't be reached or answered garbage.  Idempotent
+	 * calls join an identical one that is still running, and get its result. */
+	Object xmlrpcCallChecked(final RpcCall call, final IXMLRPCResultReader resultReader) throws XMLRPCException {
+		if(!call.isIdempotent()) {
+			return send(call, resultReader);
+		}
+
+		// the token is part of the key, so calls for another session never meet
+		try {
+			return inFlight.call(transport.getSession() + '/' + call.cacheKey(), new Callable<Object>() {
+				public Object call() throws XMLRPCException {
+					return send(call, resultReader);
+				}
+			});
+		}
+		catch(XMLRPCException e) {
+			throw e;
+		}
+		catch(RuntimeException e) {
+			throw e;
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XMLRPCException(e);
+		}
+		catch(Exception e) {
+			throw new XMLRPCException(e);
 		}
+	}
 
-		return result;
+	/* Sends call with the deadline the policy gives it.  Idempotent calls that fail are sent
+	 * again, and slow ones are hedged; the server refusing a call is final either way.  Not
+	 * when the reader streams to a listener though: that would hear from both requests. */
+	private Object send(final RpcCall call, final IXMLRPCResultReader resultReader) throws XMLRPCException {
+		TransportPolicy policy = this.policy;
+		String method = call.getMethod();
+		boolean repeatable = call.isIdempotent() && isShared(resultReader);
+		int retries = repeatable ? policy.getRetries(method) : 0;
+
+		for(int retry=0; ; retry++) {
+			try {
+				long hedgeDelay = repeatable ? policy.getHedgeDelay(method) : -1;
+				if(hedgeDelay < 0) {
+					return sendOnce(policy, call, resultReader, null);
+				}
+
+				final TransportPolicy hedgePolicy = policy;
+				return HedgedCall.send(new HedgedCall.Sender() {
+					public Object send(HedgedCall.Attempt attempt) throws XMLRPCException {
+						return sendOnce(hedgePolicy, call, resultReader, attempt);
+					}
+				}, hedgeDelay);
+			}
+			catch(XMLRPCFault e) {
+				throw e;
+			}
+			catch(XMLRPCException e) {
+				if(retry >= retries) {
+					throw e;
+				}
+				metrics.recordRetry(method);
+				try {
+					Thread.sleep(policy.getBackoff(retry));
+				}
+				catch(InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
 	}
-	Object xmlrpcCall(String method, Vector<Object> args) {
-		return xmlrpcCall(method, args, null);
+
+	private void recordCall(String method, XMLRPCCallStats stats) {
+		metrics.recordCall(method, stats.getEncodeNanos(), stats.getExchangeNanos(),
+				stats.getReadNanos(), stats.getRequestBytes(), stats.getResponseBytes(), stats.getDecodedBytes());
 	}
-	private Object xmlrpcCall(String method) {
-		return xmlrpcCall(method, EMPTY_ARGS, null);
+
+	/* Readers that only bind, and can be used by any number of calls at once. */
+	private boolean isShared(IXMLRPCResultReader resultReader) {
+		return resultReader == null || resultReader == playlistReader || resultReader == stationsReader;
 	}
 
-	@SuppressWarnings("unchecked")
-	public void connect(String user, String password) {
-		rid = String.format("%07dP", System.currentTimeMillis() % 1000L);
-		authToken = null;
+	/* Sends call once, telling the policy how long it took.  attempt, if any, is given the
+	 * request so it can be aborted, and once it has been its failure is neither printed nor
+	 * counted. */
+	private Object sendOnce(TransportPolicy policy, RpcCall call, IXMLRPCResultReader resultReader, HedgedCall.Attempt attempt) throws XMLRPCException {
+		String method = call.getMethod();
+		if(attempt != null && attempt.isHedge()) {
+			metrics.recordHedge(method);
+		}
 
-		Vector<Object> args = new Vector<Object>(2);
-		args.add(user); args.add(password);
+		XMLRPCCallStats stats = new XMLRPCCallStats();
+		try {
+			long start = System.nanoTime();
+			Object result = transport.send(call, resultReader, policy.getTimeout(method), stats, attempt);
+			// building the request isn't the server's time
+			policy.onSuccess(method, (System.nanoTime() - start - stats.getEncodeNanos()) / 1000000L);
+			recordCall(method, stats);
+			return result;
+		}
+		catch(XMLRPCFault e) {
+			e.printStackTrace();
+			recordCall(method, stats);
+			metrics.recordFault(method, e.getFaultCode());
+			throw e;
+		}
+		catch(XMLRPCException e) {
+			if(attempt != null && attempt.isAborted()) {
+				// the other request answered, this one was cancelled rather than failed
+				throw e;
+			}
+			e.printStackTrace();
+			boolean timeout = e instanceof XMLRPCTimeoutException;
+			if(timeout) {
+				policy.onTimeout(method);
+			}
+			metrics.recordError(method, timeout);
+			throw e;
+		}
+	}
 
-		Object result = xmlrpcCall("listener.authenticateListener", args, EMPTY_ARGS);
+	public void connect(String user, String password) {
+		RpcFuture.call(connectTask(user, password));
+	}
 
-		if(result instanceof HashMap<?,?>) {
-			HashMap<String,Object> userInfo = (HashMap<String,Object>) result;
+	public RpcFuture<Void> connectAsync(String user, String password) {
+		return submit(connectTask(user, password));
+	}
 
-			webAuthToken = (String) userInfo.get("webAuthToken");
-			authToken = (String) userInfo.get("authToken");
-		}
+	private Callable<Void> connectTask(final String user, final String password) {
+		return new Callable<Void>() {
+			@SuppressWarnings("unchecked")
+			public Void call() {
+				PandoraRadio.this.user = null;
+
+				// the transport keeps the session it gets back
+				Object result = xmlrpcCall(RpcCall.builder("listener.authenticateListener")
+						.add(user).add(password).withoutUrlArgs().build());
+				if(isAlive()) {
+					PandoraRadio.this.user = user;
+				}
+
+				if(result instanceof Map<?,?>) {
+					Map<String,Object> userInfo = (Map<String,Object>) result;
+
+					webAuthToken = (String) userInfo.get("webAuthToken");
+				}
+				return null;
+			}
+		};
 	}
 	
 	public void disconnect() {
-		authToken = null;
+		transport.signOut();
 		webAuthToken = null;
+		user = null;
 		
-		if(stations != null) {
-			stations.clear();
-			stations = null;
-		}
+		// the list may still be in the cache, so it's only let go of
+		stations = null;
 	}
 
-	@SuppressWarnings("unchecked")
 	public ArrayList<Station> getStations() {
-		// get stations
-		Object result = xmlrpcCall("station.getStations");
-
-		if(result instanceof Object[]) {
-			Object[] stationsResult = (Object[]) result;
-			stations = new ArrayList<Station>(stationsResult.length);
-			for(int s=0; s<stationsResult.length; s++) {
-				stations.add(new Station((HashMap<String,Object>)stationsResult[s], this));
+		return getStations(null);
+	}
+
+	/** Returns the cached station list if there is one, otherwise waits for the server's.
+	 *  When the cached one is getting old it is refreshed in the background, and refreshed
+	 *  (which may be null) gets the new list on the thread that downloaded it.  Null while
+	 *  not signed in. */
+	public ArrayList<Station> getStations(RpcFuture.Callback<? super ArrayList<Station>> refreshed) {
+		if(!cacheable()) {
+			return null;
+		}
+		ArrayList<Station> list;
+		try {
+			list = cache.get(GET_STATIONS.getMethod(), cacheKey(GET_STATIONS.cacheKey()),
+					getStationsTask, executor, refreshed);
+		}
+		catch(Exception e) {
+			// the task doesn't throw, it returns null when the call failed
+			throw new RuntimeException(e);
+		}
+
+		if(list != null) {
+			// read back from the store, these don't know which PandoraRadio they belong to
+			for(int s=0; s<list.size(); s++) {
+				list.get(s).attach(this);
 			}
-			Collections.sort(stations);
+			stations = list;
 		}
-		
-		return stations;
+		return list;
 	}
+
+	public RpcFuture<ArrayList<Station>> getStationsAsync() {
+		return submit(new Callable<ArrayList<Station>>() {
+			public ArrayList<Station> call() {
+				return getStations(null);
+			}
+		});
+	}
+
+	private final Callable<ArrayList<Station>> getStationsTask = new Callable<ArrayList<Station>>() {
+		@SuppressWarnings("unchecked")
+		public ArrayList<Station> call() {
+			// get stations
+			Object result = xmlrpcCall(GET_STATIONS, getStationsReader());
+
+			if(result instanceof Object[]) {
+				Object[] stationsResult = (Object[]) result;
+				ArrayList<Station> list = new ArrayList<Station>(stationsResult.length);
+				for(int s=0; s<stationsResult.length; s++) {
+					if(stationsResult[s] instanceof Station)
+						list.add((Station) stationsResult[s]);
+					else
+						list.add(new Station((Map<String,Object>)stationsResult[s], PandoraRadio.this));
+				}
+				Collections.sort(list);
+				stations = list;
+				return list;
+			}
+
+			return null;
+		}
+	};
 	
 	public Station getStationById(long sid) {
+		ArrayList<Station> stations = this.stations;
+		if(stations == null) {
+			return null;
+		}
 		Iterator<Station> stationIter = stations.iterator();
 		Station station = null;
 		while(stationIter.hasNext()) {
@@ -276,37 +568,105 @@ public class PandoraRadio {
 		return null;
 	}
 
+	String getStationImageUrl(Station station) {
+		if(!cacheable()) {
+			return null;
+		}
+		return cache.peek(STATION_IMAGE_URL, cacheKey(STATION_IMAGE_URL + '?' + station.getStationId()));
+	}
+
+	void rememberStationImageUrl(Station station, String url) {
+		if(url != null && cacheable()) {
+			cache.put(cacheKey(STATION_IMAGE_URL + '?' + station.getStationId()), url);
+		}
+	}
+
 	public void rate(Station station, Song song, boolean rating) {
-		Vector<Object> args = new Vector<Object>(7);
-		args.add(String.valueOf(station.getId())); args.add(song.getId()); args.add(song.getUserSeed());
-		args.add(""/*testStrategy*/); args.add(rating); args.add(false); args.add(song.getSongType());
-		
-		xmlrpcCall("station.addFeedback", args);
+		RpcFuture.call(rateTask(station, song, rating));
+	}
+
+	public RpcFuture<Void> rateAsync(Station station, Song song, boolean rating) {
+		return submit(rateTask(station, song, rating));
+	}
+
+	private Callable<Void> rateTask(Station station, Song song, boolean rating) {
+		return callTask(rateCall(String.valueOf(station.getId()), song.getId(), song.getUserSeed(),
+				rating, song.getSongType()));
+	}
+
+	static RpcCall rateCall(String stationId, String musicId, String userSeed, boolean rating, int songType) {
+		return RpcCall.builder("station.addFeedback")
+				.add(stationId).add(musicId).add(userSeed)
+				.add(""/*testStrategy*/).add(rating).add(false).add(songType).build();
 	}
 	
 	public void bookmarkSong(Station station, Song song) {
-		Vector<Object> args = new Vector<Object>(2);
-		args.add(String.valueOf(station.getId())); args.add(song.getId());
-		
-		xmlrpcCall("station.createBookmark", args);
+		RpcFuture.call(bookmarkSongTask(station, song));
+	}
+
+	public RpcFuture<Void> bookmarkSongAsync(Station station, Song song) {
+		return submit(bookmarkSongTask(station, song));
+	}
+
+	private Callable<Void> bookmarkSongTask(Station station, Song song) {
+		return callTask(bookmarkSongCall(String.valueOf(station.getId()), song.getId()));
+	}
+
+	static RpcCall bookmarkSongCall(String stationId, String musicId) {
+		return RpcCall.builder("station.createBookmark").add(stationId).add(musicId).build();
 	}
 	
 	public void bookmarkArtist(Station station, Song song) {
-		Vector<Object> args = new Vector<Object>(1);
-		args.add(song.getArtistMusicId());
-		
-		xmlrpcCall("station.createArtistBookmark", args);
+		RpcFuture.call(bookmarkArtistTask(station, song));
+	}
+
+	public RpcFuture<Void> bookmarkArtistAsync(Station station, Song song) {
+		return submit(bookmarkArtistTask(station, song));
+	}
+
+	private Callable<Void> bookmarkArtistTask(Station station, Song song) {
+		return callTask(bookmarkArtistCall(song.getArtistMusicId()));
+	}
+
+	static RpcCall bookmarkArtistCall(String artistMusicId) {
+		return RpcCall.builder("station.createArtistBookmark").add(artistMusicId).build();
 	}
 	
 	public void tired(Station station, Song song) {
-		Vector<Object> args = new Vector<Object>(3);
-		args.add(song.getId()); args.add(song.getUserSeed()); args.add(String.valueOf(station.getId()));
-		
-		xmlrpcCall("listener.addTiredSong", args);
+		RpcFuture.call(tiredTask(station, song));
+	}
+
+	public RpcFuture<Void> tiredAsync(Station station, Song song) {
+		return submit(tiredTask(station, song));
+	}
+
+	private Callable<Void> tiredTask(Station station, Song song) {
+		return callTask(tiredCall(String.valueOf(station.getId()), song.getId(), song.getUserSeed()));
+	}
+
+	static RpcCall tiredCall(String stationId, String musicId, String userSeed) {
+		return RpcCall.builder("listener.addTiredSong").add(musicId).add(userSeed).add(stationId).build();
+	}
+
+	/* A call whose result nobody looks at.  The request is built by the caller, so the
+	 * song and station are read on its thread and not again later. */
+	private Callable<Void> callTask(final RpcCall call) {
+		return new Callable<Void>() {
+			public Void call() {
+				xmlrpcCall(call);
+				return null;
+			}
+		};
+	}
+
+	/** The user signed in as, still known after the session expires and null once
+	 *  disconnected or when signing in failed. */
+	public String getUser() {
+		return user;
 	}
 
 	public boolean isAlive() {
-		return authToken != null;
+		return transport.getSession() != null;
 	}
 
 	public class SearchResult {
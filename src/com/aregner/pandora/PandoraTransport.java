@@ -0,0 +1,58 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import org.apache.http.client.methods.AbortableHttpRequest;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCCallStats;
+import org.xmlrpc.android.XMLRPCException;
+
+/* How PandoraRadio's calls get to the server.  Calls are always described the XML-RPC v32
+ * way (method names, arguments and result maps); a transport for another API translates
+ * them, and answers with the same Songs, Stations and maps.  listener.authenticateListener
+ * signs in and answers with a map holding at least authToken.
+ *
+ *   pandora.setTransport(new JsonTransport(pandora));
+ */
+public interface PandoraTransport {
+
+	/* Told about every HTTP request a call makes, so it can be aborted from another thread. */
+	interface RequestListener {
+		void onRequest(AbortableHttpRequest request);
+	}
+
+	/**
+	 * Sends call, and reads its result.
+	 * @param resultReader reads the result in place of maps and arrays, may be null; a
+	 * transport that doesn't speak XML-RPC binds Songs and Stations itself
+	 * @param timeoutMillis deadline of each request, 0 for none
+	 * @param stats sizes and timings of the call, the time taken to build and encrypt the
+	 * request counted as encode time
+	 * @param listener may be null
+	 * @throws XMLRPCFault when the server refused the call
+	 * @throws XMLRPCTimeoutException when a request ran past its deadline
+	 */
+	Object send(RpcCall call, IXMLRPCResultReader resultReader, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException;
+
+	/** Token of the session signed in to, null when there's none. */
+	String getSession();
+
+	/** Forgets the session, the next call will have to sign in again. */
+	void signOut();
+}
@@ -0,0 +1,172 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/* Pandora uses Blowfish in ECB mode, so every block can be encrypted on its own.  For large
+ * bodies this splits the plain text into block aligned chunks and has a small pool encrypt
+ * and hex encode them into disjoint parts of one output array.  Anything below the threshold
+ * (or on a single core device) goes through the serial path in the calling thread.
+ */
+public class ParallelEcb {
+
+	public static final int DEFAULT_THRESHOLD = 32 * 1024;
+
+	// below this a chunk isn't worth handing to another thread
+	private static final int MIN_CHUNK = 8 * 1024;
+	// plain text is encrypted through a scratch window of this size
+	private static final int WINDOW = 4 * 1024;
+
+	private static ParallelEcb defaultInstance;
+
+	private final ExecutorService executor;
+	private final int parallelism;
+	private volatile int threshold;
+
+	private final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[WINDOW];
+		}
+	};
+
+	public ParallelEcb(ExecutorService executor, int parallelism, int threshold) {
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+		this.threshold = threshold;
+	}
+
+	/** Shared instance with one daemon thread per available processor. */
+	public static synchronized ParallelEcb getDefault() {
+		if(defaultInstance == null) {
+			int cores = Runtime.getRuntime().availableProcessors();
+			ExecutorService executor = cores > 1 ? Executors.newFixedThreadPool(cores, new ThreadFactory() {
+				private int count = 0;
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ParallelEcb-" + (++count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			}) : null;
+			defaultInstance = new ParallelEcb(executor, cores, DEFAULT_THRESHOLD);
+		}
+		return defaultInstance;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/** Plain text length from which bodies are split, Integer.MAX_VALUE turns splitting off. */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public boolean shouldSplit(int length) {
+		return executor != null && parallelism > 1 && length >= threshold;
+	}
+
+	/** Encrypts plain[offset..offset+length), zero padded to whole blocks, and writes the
+	 *  hex of the cipher text into hex[hexOffset].  plain itself is left untouched. */
+	public void encryptToHex(CipherEngine engine, byte[] plain, int offset, int length, byte[] hex, int hexOffset) {
+		run(engine, plain, offset, length, hex, null, hexOffset);
+	}
+
+	public void encryptToHex(CipherEngine engine, byte[] plain, int offset, int length, char[] hex, int hexOffset) {
+		run(engine, plain, offset, length, null, hex, hexOffset);
+	}
+
+	private void run(final CipherEngine engine, final byte[] plain, final int offset, final int length,
+			final byte[] byteHex, final char[] charHex, final int hexOffset) {
+
+		int blocks = (length + CipherEngine.BLOCK_SIZE - 1) / CipherEngine.BLOCK_SIZE;
+		int chunks = shouldSplit(length) ? Math.min(parallelism, Math.max(1, length / MIN_CHUNK)) : 1;
+		int blocksPerChunk = (blocks + chunks - 1) / Math.max(1, chunks);
+
+		List<Future<Void>> pending = new ArrayList<Future<Void>>(chunks);
+		Callable<Void> own = null;
+		for(int start = 0; start < blocks; start += blocksPerChunk) {
+			final int from = start * CipherEngine.BLOCK_SIZE;
+			final int to = Math.min(blocks, start + blocksPerChunk) * CipherEngine.BLOCK_SIZE;
+			Callable<Void> task = new Callable<Void>() {
+				public Void call() {
+					encryptRange(engine, plain, offset, length, from, to, byteHex, charHex, hexOffset);
+					return null;
+				}
+			};
+			if(own == null) {
+				// the calling thread takes the first chunk itself instead of just waiting
+				own = task;
+				continue;
+			}
+			try {
+				pending.add(executor.submit(task));
+			} catch (RejectedExecutionException e) {
+				encryptRange(engine, plain, offset, length, from, to, byteHex, charHex, hexOffset);
+			}
+		}
+
+		if(own != null) {
+			try {
+				own.call();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		for(Future<Void> future : pending) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/* Handles [from, to) of the padded plain text, relative to offset. */
+	private void encryptRange(CipherEngine engine, byte[] plain, int offset, int length, int from, int to,
+			byte[] byteHex, char[] charHex, int hexOffset) {
+		byte[] window = scratch.get();
+		for(int pos = from; pos < to; pos += window.length) {
+			int n = Math.min(window.length, to - pos);
+			int available = Math.max(0, Math.min(n, length - pos));
+			System.arraycopy(plain, offset + pos, window, 0, available);
+			for(int i=available; i<n; i++) {
+				window[i] = 0;
+			}
+
+			engine.encrypt(window, 0, n);
+
+			if(byteHex != null)
+				Hex.encode(window, 0, n, byteHex, hexOffset + pos * 2);
+			else
+				Hex.encode(window, 0, n, charHex, hexOffset + pos * 2);
+		}
+	}
+}
@@ -0,0 +1,328 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/* Remembers the results of calls that don't change anything on the server, keyed by
+ * method and arguments.  Each method gets its own time to live: within it the cached
+ * result is returned as is, for a while after that it is still returned straight away but
+ * a refresh is started in the background (stale-while-revalidate), and after that the
+ * caller waits for a new one.  Methods without a time to live aren't cached at all.
+ *
+ * The most recently used entries are kept in memory, and written to a Store if there is
+ * one so the next process can start from them.
+ */
+public class ResponseCache {
+
+	/** Keeps entries across restarts.  Called on whatever thread uses the cache. */
+	public interface Store {
+		/** The entry saved for key, or null. */
+		Entry load(String key);
+		void save(Entry entry);
+		void remove(String key);
+		void clear();
+	}
+
+	/* One cached result, and when it was stored. */
+	public static final class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String key;
+		private final Object value;
+		private final long storedAt;
+
+		public Entry(String key, Object value, long storedAt) {
+			this.key = key;
+			this.value = value;
+			this.storedAt = storedAt;
+		}
+
+		public String getKey() {
+			return key;
+		}
+		public Object getValue() {
+			return value;
+		}
+		public long getStoredAt() {
+			return storedAt;
+		}
+	}
+
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+
+	// a value is fresh for ttl[0] ms, then usable while it's refreshed for another ttl[1] ms
+	private final Map<String, long[]> ttls = new HashMap<String, long[]>();
+	private final LinkedHashMap<String, Entry> entries;
+	private final Set<String> refreshing = new HashSet<String>();
+	private final Store store;
+
+	/** store may be null to keep entries in memory only. */
+	public ResponseCache(final int maxEntries, Store store) {
+		this.store = store;
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/** Caches results of method for freshMillis, and hands them out for staleMillis more
+	 *  while they are refreshed.  A freshMillis of 0 stops caching method. */
+	public synchronized void setTtl(String method, long freshMillis, long staleMillis) {
+		if(freshMillis <= 0) {
+			ttls.remove(method);
+		}
+		else {
+			ttls.put(method, new long[] { freshMillis, Math.max(0, staleMillis) });
+		}
+	}
+
+	/** The cached result for key, fresh or stale, without ever loading one. */
+	@SuppressWarnings("unchecked")
+	public <T> T peek(String method, String key) {
+		long[] ttl = getTtl(method);
+		Entry entry = lookup(key);
+		if(ttl == null || entry == null || age(entry) >= ttl[0] + ttl[1]) {
+			return null;
+		}
+		return (T) entry.value;
+	}
+
+	/** Returns the cached result for key, or what loader returns when there's none that can
+	 *  still be used.  A stale one is returned as well, and refreshed by loader on executor;
+	 *  refreshed (which may be null) gets the new result.  Null results aren't cached. */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String method, final String key, final Callable<T> loader, Executor executor,
+			final RpcFuture.Callback<? super T> refreshed) throws Exception {
+		long[] ttl = getTtl(method);
+		if(ttl == null) {
+			return loader.call();
+		}
+
+		Entry entry = lookup(key);
+		if(entry != null) {
+			long age = age(entry);
+			if(age < ttl[0]) {
+				return (T) entry.value;
+			}
+			if(age < ttl[0] + ttl[1]) {
+				revalidate(key, loader, executor, refreshed);
+				return (T) entry.value;
+			}
+		}
+
+		T value = loader.call();
+		if(value != null) {
+			put(key, value);
+		}
+		return value;
+	}
+
+	public void put(String key, Object value) {
+		Entry entry = new Entry(key, value, System.currentTimeMillis());
+		synchronized(this) {
+			entries.put(key, entry);
+		}
+		if(store != null && value instanceof Serializable) {
+			store.save(entry);
+		}
+	}
+
+	public void remove(String key) {
+		synchronized(this) {
+			entries.remove(key);
+		}
+		if(store != null) {
+			store.remove(key);
+		}
+	}
+
+	/** Forgets everything, in the store as well. */
+	public void clear() {
+		synchronized(this) {
+			entries.clear();
+		}
+		if(store != null) {
+			store.clear();
+		}
+	}
+
+	private synchronized long[] getTtl(String method) {
+		return ttls.get(method);
+	}
+
+	private static long age(Entry entry) {
+		// a clock set back makes everything look new, rather than older than it is
+		return Math.max(0, System.currentTimeMillis() - entry.storedAt);
+	}
+
+	private Entry lookup(String key) {
+		Entry entry;
+		synchronized(this) {
+			entry = entries.get(key);
+		}
+		if(entry == null && store != null) {
+			entry = store.load(key);
+			if(entry != null) {
+				synchronized(this) {
+					// someone else may have stored a newer one meanwhile
+					Entry current = entries.get(key);
+					if(current == null || current.storedAt < entry.storedAt) {
+						entries.put(key, entry);
+					}
+					else {
+						entry = current;
+					}
+				}
+			}
+		}
+		return entry;
+	}
+
+	/* Starts loading key in the background, unless that's already being done. */
+	private <T> void revalidate(final String key, final Callable<T> loader, Executor executor,
+			final RpcFuture.Callback<? super T> refreshed) {
+		synchronized(this) {
+			if(!refreshing.add(key)) {
+				return;
+			}
+		}
+
+		RpcFuture.submit(executor, new Callable<T>() {
+			public T call() throws Exception {
+				T value = loader.call();
+				if(value != null) {
+					put(key, value);
+				}
+				return value;
+			}
+		}).addCallback(new RpcFuture.Callback<T>() {
+			public void onSuccess(T value) {
+				done();
+				if(refreshed != null && value != null) {
+					refreshed.onSuccess(value);
+				}
+			}
+			public void onFailure(Throwable error) {
+				done();
+				if(refreshed != null) {
+					refreshed.onFailure(error);
+				}
+			}
+			private void done() {
+				synchronized(ResponseCache.this) {
+					refreshing.remove(key);
+				}
+			}
+		});
+	}
+
+	/* A Store keeping each entry in a file of its own in one directory. */
+	public static class DirectoryStore implements Store {
+		private final File dir;
+
+		public DirectoryStore(File dir) {
+			this.dir = dir;
+		}
+
+		private File fileFor(String key) {
+			// the key is in the file too, so two keys sharing a hash can't be mixed up
+			return new File(dir, Integer.toHexString(key.hashCode()) + ".entry");
+		}
+
+		public Entry load(String key) {
+			File file = fileFor(key);
+			if(!file.exists()) {
+				return null;
+			}
+			try {
+				ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+				try {
+					Entry entry = (Entry) in.readObject();
+					return key.equals(entry.key) ? entry : null;
+				}
+				finally {
+					in.close();
+				}
+			}
+			catch(Exception e) {
+				// unreadable, most likely written by an older version: drop it
+				file.delete();
+				return null;
+			}
+		}
+
+		public void save(Entry entry) {
+			if(!dir.isDirectory() && !dir.mkdirs()) {
+				return;
+			}
+			// written aside and renamed, so a reader never sees half of it
+			File file = fileFor(entry.key);
+			File temp = null;
+			try {
+				temp = File.createTempFile(file.getName(), ".tmp", dir);
+				ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+				try {
+					out.writeObject(entry);
+				}
+				finally {
+					out.close();
+				}
+				if(!temp.renameTo(file)) {
+					temp.delete();
+				}
+			}
+			catch(IOException e) {
+				e.printStackTrace();
+				if(temp != null)
+					temp.delete();
+			}
+		}
+
+		public void remove(String key) {
+			fileFor(key).delete();
+		}
+
+		public void clear() {
+			File[] files = dir.listFiles();
+			if(files != null) {
+				for(int f=0; f<files.length; f++) {
+					files[f].delete();
+				}
+			}
+		}
+	}
+}
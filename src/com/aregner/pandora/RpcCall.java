@@ -0,0 +1,299 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/* An immutable description of one Pandora XML-RPC call: the method and its typed
+ * arguments.  Primitive arguments are kept unboxed, and nothing is added to the call when
+ * it is sent (the timestamp and auth token are written in front of the arguments while
+ * rendering), so one instance can be reused and shared between threads freely.
+ *
+ *   RpcCall call = RpcCall.builder("station.addFeedback").add(stationId).add(true).build();
+ */
+public final class RpcCall {
+
+	private static final byte STRING = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte INT = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte OBJECT = 5;
+
+	private final String method;
+	private final String shortMethod;
+	private final byte[] types;
+	private final long[] primitives; // booleans as 0/1, doubles as raw long bits
+	private final Object[] objects;
+	private final boolean urlArgs;
+	private final boolean idempotent;
+
+	private RpcCall(Builder builder) {
+		method = builder.method;
+		shortMethod = method.substring(method.lastIndexOf('.')+1);
+		types = copy(builder.types, builder.count);
+		primitives = copy(builder.primitives, builder.count);
+		objects = copy(builder.objects, builder.count);
+		urlArgs = builder.urlArgs;
+		idempotent = builder.idempotent;
+	}
+
+	public static Builder builder(String method) {
+		return new Builder(method);
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public int getArgumentCount() {
+		return types.length;
+	}
+
+	/** Argument i, boxed, for transports that translate calls rather than send them as they are. */
+	public Object getArgument(int i) {
+		switch(types[i]) {
+		case BOOLEAN:
+			return Boolean.valueOf(primitives[i] != 0);
+		case INT:
+			return Integer.valueOf((int) primitives[i]);
+		case LONG:
+			return Long.valueOf(primitives[i]);
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(primitives[i]));
+		default:
+			return objects[i];
+		}
+	}
+
+	/** Whether the same call made twice at once can be answered once for both. */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	/** The method and arguments as one string, equal for calls that are sent the same. */
+	public String cacheKey() {
+		StringBuilder key = new StringBuilder(method.length() + 16 * types.length).append(method);
+		for(int i=0; i<types.length; i++) {
+			key.append(i == 0 ? '?' : '&');
+			switch(types[i]) {
+			case STRING:
+				key.append(encode((String) objects[i]));
+				break;
+			case BOOLEAN:
+				key.append(primitives[i] != 0);
+				break;
+			case INT:
+			case LONG:
+				key.append(primitives[i]);
+				break;
+			case DOUBLE:
+				key.append(Double.longBitsToDouble(primitives[i]));
+				break;
+			default:
+				appendUrlArg(key, objects[i]);
+				break;
+			}
+		}
+		return key.toString();
+	}
+
+	/** Appends the query string for this call (rid, method and the argN= parameters) to url,
+	 *  and returns the matching XML body, visiting every argument only once. */
+	public String render(long timestamp, String authToken, String rid, StringBuilder url) {
+		XmlRpcRequestWriter xml = XmlRpcRequestWriter.obtain();
+		try {
+			render(timestamp, authToken, rid, url, xml);
+			return xml.toString();
+		}
+		finally {
+			xml.recycle();
+		}
+	}
+
+	/** Same as above, but the XML body is written to xml as UTF-8. */
+	public void render(long timestamp, String authToken, String rid, StringBuilder url, XmlRpcRequestWriter xml) {
+		xml.startCall(method);
+		xml.param((int) timestamp);
+		if(authToken != null) {
+			xml.param(authToken);
+		}
+
+		if(rid != null) {
+			url.append("rid=").append(rid).append('&');
+		}
+		url.append("method=").append(shortMethod);
+
+		for(int i=0; i<types.length; i++) {
+			if(urlArgs) {
+				url.append("&arg").append(i+1).append('=');
+			}
+			switch(types[i]) {
+			case STRING:
+				xml.param((String) objects[i]);
+				if(urlArgs) url.append(encode((String) objects[i]));
+				break;
+			case BOOLEAN:
+				xml.param(primitives[i] != 0);
+				if(urlArgs) url.append(primitives[i] != 0);
+				break;
+			case INT:
+				xml.param((int) primitives[i]);
+				if(urlArgs) url.append((int) primitives[i]);
+				break;
+			case LONG:
+				xml.param(primitives[i]);
+				if(urlArgs) url.append(primitives[i]);
+				break;
+			case DOUBLE:
+				xml.param(Double.longBitsToDouble(primitives[i]));
+				if(urlArgs) url.append(Double.longBitsToDouble(primitives[i]));
+				break;
+			default:
+				xml.param(objects[i]);
+				if(urlArgs) appendUrlArg(url, objects[i]);
+				break;
+			}
+		}
+
+		xml.endCall();
+	}
+
+	private static void appendUrlArg(StringBuilder url, Object v) {
+		Iterator<?> items;
+		if(v instanceof Object[])
+			items = Arrays.asList((Object[]) v).iterator();
+		else if(v instanceof Collection<?>)
+			items = ((Collection<?>) v).iterator();
+		else {
+			url.append(encode(v.toString()));
+			return;
+		}
+
+		// lists go in as one comma separated argument
+		while(items.hasNext()) {
+			url.append(encode(String.valueOf(items.next())));
+			if(items.hasNext())
+				url.append("%2C");
+		}
+	}
+
+	private static String encode(String v) {
+		try {
+			return URLEncoder.encode(v, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every VM is required to support UTF-8
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static byte[] copy(byte[] a, int n) {
+		byte[] result = new byte[n];
+		System.arraycopy(a, 0, result, 0, n);
+		return result;
+	}
+	private static long[] copy(long[] a, int n) {
+		long[] result = new long[n];
+		System.arraycopy(a, 0, result, 0, n);
+		return result;
+	}
+	private static Object[] copy(Object[] a, int n) {
+		Object[] result = new Object[n];
+		System.arraycopy(a, 0, result, 0, n);
+		return result;
+	}
+
+	/* Not thread safe, but build() takes a snapshot so a builder can be reused afterwards. */
+	public static final class Builder {
+		private final String method;
+		private byte[] types = new byte[8];
+		private long[] primitives = new long[8];
+		private Object[] objects = new Object[8];
+		private int count;
+		private boolean urlArgs = true;
+		private boolean idempotent;
+
+		private Builder(String method) {
+			if(method == null) {
+				throw new IllegalArgumentException("method may not be null");
+			}
+			this.method = method;
+		}
+
+		private Builder add(byte type, long primitive, Object object) {
+			if(count == types.length) {
+				types = copy(types, count * 2);
+				primitives = copy(primitives, count * 2);
+				objects = copy(objects, count * 2);
+			}
+			types[count] = type;
+			primitives[count] = primitive;
+			objects[count] = object;
+			count++;
+			return this;
+		}
+
+		public Builder add(String v) {
+			if(v == null) {
+				throw new IllegalArgumentException("XML-RPC has no null, argument "+(count+1)+" of "+method);
+			}
+			return add(STRING, 0, v);
+		}
+		public Builder add(boolean v) {
+			return add(BOOLEAN, v ? 1 : 0, null);
+		}
+		public Builder add(int v) {
+			return add(INT, v, null);
+		}
+		public Builder add(long v) {
+			return add(LONG, v, null);
+		}
+		public Builder add(double v) {
+			return add(DOUBLE, Double.doubleToRawLongBits(v), null);
+		}
+		/** Maps, arrays, collections and anything else XmlRpcRequestWriter knows how to write.
+		 *  Collections are not copied, so don't change them once they are part of a call. */
+		public Builder add(Object v) {
+			if(v == null) {
+				throw new IllegalArgumentException("XML-RPC has no null, argument "+(count+1)+" of "+method);
+			}
+			return add(OBJECT, 0, v);
+		}
+
+		/** Keeps the arguments out of the query string, for calls like authenticateListener. */
+		public Builder withoutUrlArgs() {
+			urlArgs = false;
+			return this;
+		}
+
+		/** Lets identical calls that are in flight at the same time share one request.
+		 *  Never for calls that change something, like feedback. */
+		public Builder idempotent() {
+			idempotent = true;
+			return this;
+		}
+
+		public RpcCall build() {
+			return new RpcCall(this);
+		}
+	}
+}
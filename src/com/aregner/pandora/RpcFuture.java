@@ -0,0 +1,183 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/* The result of a Pandora call running in the background.  It is a plain Future, so it can
+ * be waited on or cancelled, and besides that it takes callbacks and can be chained with
+ * then() into further work that runs once it is done.  Callbacks run on whichever thread
+ * completes the call; post to a Handler from them to get back to the UI thread.
+ */
+public class RpcFuture<T> extends FutureTask<T> {
+
+	/** Told about the outcome of a call, exactly one of the two methods is called. */
+	public interface Callback<T> {
+		void onSuccess(T result);
+		/** The call threw, was cancelled (CancellationException) or couldn't be queued. */
+		void onFailure(Throwable error);
+	}
+
+	/** Turns the result of one call into the input of the next step. */
+	public interface Continuation<T, U> {
+		U apply(T result) throws Exception;
+	}
+
+	// null once done, callbacks added later run straight away
+	private List<Callback<? super T>> callbacks = new ArrayList<Callback<? super T>>(2);
+
+	public RpcFuture(Callable<T> task) {
+		super(task);
+	}
+
+	/** Queues task on executor. A full queue fails the future rather than the caller. */
+	public static <T> RpcFuture<T> submit(Executor executor, Callable<T> task) {
+		RpcFuture<T> future = new RpcFuture<T>(task);
+		try {
+			executor.execute(future);
+		} catch (RejectedExecutionException e) {
+			future.setException(e);
+		}
+		return future;
+	}
+
+	/** Runs task in the calling thread, for the blocking methods, and returns its result.
+	 *  Errors come out unwrapped, as they would from a direct call. */
+	public static <T> T call(Callable<T> task) {
+		RpcFuture<T> future = new RpcFuture<T>(task);
+		future.run();
+		return future.getResult();
+	}
+
+	public RpcFuture<T> addCallback(Callback<? super T> callback) {
+		synchronized(this) {
+			if(callbacks != null) {
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		notify(callback);
+		return this;
+	}
+
+	/** A future for next applied to this one's result.  It runs in the thread that completes
+	 *  this one, fails when this one fails, and cancelling it cancels this one too. */
+	public <U> RpcFuture<U> then(final Continuation<? super T, ? extends U> next) {
+		final RpcFuture<T> source = this;
+		final RpcFuture<U> result = new RpcFuture<U>(new Callable<U>() {
+			public U call() throws Exception {
+				try {
+					return next.apply(source.get());
+				}
+				catch(ExecutionException e) {
+					throw rethrowable(e.getCause());
+				}
+			}
+		}) {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				source.cancel(mayInterruptIfRunning);
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		addCallback(new Callback<T>() {
+			public void onSuccess(T value) {
+				result.run();
+			}
+			public void onFailure(Throwable error) {
+				if(error instanceof CancellationException)
+					result.cancel(false);
+				else
+					result.setException(error);
+			}
+		});
+		return result;
+	}
+
+	/** Waits for the result, with failures thrown as they came out of the call. */
+	public T getResult() {
+		try {
+			return get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted while waiting");
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	@Override
+	protected void done() {
+		List<Callback<? super T>> waiting;
+		synchronized(this) {
+			waiting = callbacks;
+			callbacks = null;
+		}
+		for(int i=0; i<waiting.size(); i++) {
+			try {
+				notify(waiting.get(i));
+			}
+			catch(RuntimeException e) {
+				// one broken callback mustn't keep the others from hearing about it
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void notify(Callback<? super T> callback) {
+		T value;
+		try {
+			value = get();
+		}
+		catch(CancellationException e) {
+			callback.onFailure(e);
+			return;
+		}
+		catch(ExecutionException e) {
+			callback.onFailure(e.getCause());
+			return;
+		}
+		catch(InterruptedException e) {
+			// can't happen, the future is done
+			Thread.currentThread().interrupt();
+			callback.onFailure(e);
+			return;
+		}
+		callback.onSuccess(value);
+	}
+
+	private static Exception rethrowable(Throwable cause) {
+		if(cause instanceof Exception)
+			return (Exception) cause;
+		throw (Error) cause;
+	}
+}
@@ -0,0 +1,254 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/* What every XML-RPC method has been costing: how often it was called, how it ended, the
+ * bytes it moved and a latency histogram per phase of the call.  Everything is recorded
+ * with atomic adds on striped counters, calls never wait for each other or for a reader;
+ * snapshot() copies it all out for display or export.
+ *
+ * The phases, in microseconds:
+ *   ENCRYPT  rendering and encrypting the body (the encrypted body is written straight into
+ *            the socket's buffer, so this includes that write)
+ *   NETWORK  the rest of the time until the response headers were in
+ *   PARSE    reading the response body, which is parsed while it downloads
+ *   TOTAL    all of the above
+ */
+public class RpcMetrics {
+
+	public static final int ENCRYPT = 0;
+	public static final int NETWORK = 1;
+	public static final int PARSE = 2;
+	public static final int TOTAL = 3;
+	private static final int PHASES = 4;
+	private static final String[] PHASE_NAMES = { "encrypt", "network", "parse", "total" };
+
+	/* The counters of one method. */
+	private static final class Method {
+		final StripedCounter calls = new StripedCounter();
+		final StripedCounter errors = new StripedCounter();
+		final StripedCounter timeouts = new StripedCounter();
+		final StripedCounter retries = new StripedCounter();
+		final StripedCounter hedges = new StripedCounter();
+		final StripedCounter requestBytes = new StripedCounter();
+		final StripedCounter responseBytes = new StripedCounter();
+		final StripedCounter decodedBytes = new StripedCounter();
+		final ConcurrentMap<Integer, StripedCounter> faults = new ConcurrentHashMap<Integer, StripedCounter>();
+		final LatencyHistogram[] latency = new LatencyHistogram[PHASES];
+
+		Method() {
+			for(int p=0; p<PHASES; p++) {
+				latency[p] = new LatencyHistogram();
+			}
+		}
+	}
+
+	private final ConcurrentMap<String, Method> methods = new ConcurrentHashMap<String, Method>();
+
+	private Method get(String method) {
+		Method m = methods.get(method);
+		if(m == null) {
+			Method created = new Method();
+			m = methods.putIfAbsent(method, created);
+			if(m == null) {
+				m = created;
+			}
+		}
+		return m;
+	}
+
+	/** A request of method was answered, faults included; its phases took the given times. */
+	public void recordCall(String method, long encryptNanos, long networkNanos, long parseNanos,
+			long requestBytes, long responseBytes, long decodedBytes) {
+		Method m = get(method);
+		m.calls.increment();
+		m.latency[ENCRYPT].recordNanos(encryptNanos);
+		m.latency[NETWORK].recordNanos(networkNanos);
+		m.latency[PARSE].recordNanos(parseNanos);
+		m.latency[TOTAL].recordNanos(encryptNanos + networkNanos + parseNanos);
+		m.requestBytes.add(requestBytes);
+		m.responseBytes.add(responseBytes);
+		m.decodedBytes.add(decodedBytes);
+	}
+
+	/** The server answered a call of method with a fault. */
+	public void recordFault(String method, int faultCode) {
+		Method m = get(method);
+		StripedCounter count = m.faults.get(faultCode);
+		if(count == null) {
+			StripedCounter created = new StripedCounter();
+			count = m.faults.putIfAbsent(faultCode, created);
+			if(count == null) {
+				count = created;
+			}
+		}
+		count.increment();
+	}
+
+	/** A request of method failed without an answer; timedOut if it ran past its deadline. */
+	public void recordError(String method, boolean timedOut) {
+		Method m = get(method);
+		m.errors.increment();
+		if(timedOut) {
+			m.timeouts.increment();
+		}
+	}
+
+	/** A call of method is sent again after failing. */
+	public void recordRetry(String method) {
+		get(method).retries.increment();
+	}
+
+	/** A slow call of method got a second request next to it. */
+	public void recordHedge(String method) {
+		get(method).hedges.increment();
+	}
+
+	/** Forgets everything recorded so far. */
+	public void reset() {
+		methods.clear();
+	}
+
+	/** A copy of what was recorded for every method, by name. */
+	public Map<String, MethodStats> snapshot() {
+		Map<String, MethodStats> snapshot = new HashMap<String, MethodStats>();
+		Iterator<Map.Entry<String, Method>> entries = methods.entrySet().iterator();
+		while(entries.hasNext()) {
+			Map.Entry<String, Method> entry = entries.next();
+			snapshot.put(entry.getKey(), new MethodStats(entry.getValue()));
+		}
+		return snapshot;
+	}
+
+	/** The snapshot as text, a line per method and phase, e.g. for a log or a bug report:
+	 *  method phase count p50 p90 p99 max (in ms), then the counters of the method. */
+	public String export() {
+		Map<String, MethodStats> snapshot = snapshot();
+		List<String> names = new ArrayList<String>(snapshot.keySet());
+		Collections.sort(names);
+
+		StringBuilder out = new StringBuilder();
+		for(int n=0; n<names.size(); n++) {
+			String name = names.get(n);
+			MethodStats stats = snapshot.get(name);
+			for(int p=0; p<PHASES; p++) {
+				LatencyHistogram.Snapshot latency = stats.getLatency(p);
+				out.append(name).append(' ').append(PHASE_NAMES[p])
+					.append(" count=").append(latency.getCount())
+					.append(" p50=").append(millis(latency.getPercentile(50)))
+					.append(" p90=").append(millis(latency.getPercentile(90)))
+					.append(" p99=").append(millis(latency.getPercentile(99)))
+					.append(" max=").append(millis(latency.getMax()))
+					.append('\n');
+			}
+			out.append(name)
+				.append(" calls=").append(stats.getCalls())
+				.append(" errors=").append(stats.getErrors())
+				.append(" timeouts=").append(stats.getTimeouts())
+				.append(" retries=").append(stats.getRetries())
+				.append(" hedges=").append(stats.getHedges())
+				.append(" sent=").append(stats.getRequestBytes())
+				.append(" received=").append(stats.getResponseBytes())
+				.append(" decoded=").append(stats.getDecodedBytes())
+				.append(" faults=").append(stats.getFaults())
+				.append('\n');
+		}
+		return out.toString();
+	}
+
+	private static String millis(long micros) {
+		return (micros / 1000) + "." + (micros % 1000 / 100) + "ms";
+	}
+
+	/* What was recorded for one method when the snapshot was taken. */
+	public static final class MethodStats {
+		private final long calls;
+		private final long errors;
+		private final long timeouts;
+		private final long retries;
+		private final long hedges;
+		private final long requestBytes;
+		private final long responseBytes;
+		private final long decodedBytes;
+		private final Map<Integer, Long> faults = new HashMap<Integer, Long>();
+		private final LatencyHistogram.Snapshot[] latency = new LatencyHistogram.Snapshot[PHASES];
+
+		private MethodStats(Method m) {
+			calls = m.calls.get();
+			errors = m.errors.get();
+			timeouts = m.timeouts.get();
+			retries = m.retries.get();
+			hedges = m.hedges.get();
+			requestBytes = m.requestBytes.get();
+			responseBytes = m.responseBytes.get();
+			decodedBytes = m.decodedBytes.get();
+			Iterator<Map.Entry<Integer, StripedCounter>> entries = m.faults.entrySet().iterator();
+			while(entries.hasNext()) {
+				Map.Entry<Integer, StripedCounter> entry = entries.next();
+				faults.put(entry.getKey(), entry.getValue().get());
+			}
+			for(int p=0; p<PHASES; p++) {
+				latency[p] = m.latency[p].snapshot();
+			}
+		}
+
+		/** Requests that were answered, faults included. */
+		public long getCalls() {
+			return calls;
+		}
+		/** Requests that got no answer. */
+		public long getErrors() {
+			return errors;
+		}
+		public long getTimeouts() {
+			return timeouts;
+		}
+		public long getRetries() {
+			return retries;
+		}
+		public long getHedges() {
+			return hedges;
+		}
+		public long getRequestBytes() {
+			return requestBytes;
+		}
+		public long getResponseBytes() {
+			return responseBytes;
+		}
+		public long getDecodedBytes() {
+			return decodedBytes;
+		}
+		/** How often each fault code came back. */
+		public Map<Integer, Long> getFaults() {
+			return Collections.unmodifiableMap(faults);
+		}
+		/** Latencies of ENCRYPT, NETWORK, PARSE or TOTAL. */
+		public LatencyHistogram.Snapshot getLatency(int phase) {
+			return latency[phase];
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/* Runs one call per key at a time: whoever asks for a key nobody is working on runs the
+ * call on its own thread, anyone asking for it meanwhile waits for that same result (or
+ * failure) instead of starting another.  Nothing is remembered once the call is done.
+ */
+final class SingleFlight<V> {
+
+	// guarded by itself
+	private final Map<String, FutureTask<V>> flights = new HashMap<String, FutureTask<V>>();
+
+	V call(String key, Callable<V> task) throws Exception {
+		FutureTask<V> flight;
+		boolean leader = false;
+		synchronized(flights) {
+			flight = flights.get(key);
+			if(flight == null) {
+				flight = new FutureTask<V>(task);
+				flights.put(key, flight);
+				leader = true;
+			}
+		}
+
+		if(leader) {
+			try {
+				flight.run();
+			}
+			finally {
+				synchronized(flights) {
+					flights.remove(key);
+				}
+			}
+		}
+
+		try {
+			return flight.get();
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception)
+				throw (Exception) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/** Number of calls in flight right now. */
+	int size() {
+		synchronized(flights) {
+			return flights.size();
+		}
+	}
+}
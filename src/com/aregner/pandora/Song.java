@@ -17,7 +17,12 @@
  */
 package com.aregner.pandora;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
+
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlrpc.android.XMLRPCStructReader;
 
 public class Song {
 	private String album;
@@ -43,7 +48,12 @@ public class Song {
 	private long playlistTime;
 	private PandoraRadio pandora;
 
-	public Song(HashMap<String,Object> d, PandoraRadio instance) {
+	public Song(Map<String,Object> d, PandoraRadio instance) {
+		this(d, instance, true);
+	}
+
+	/* encryptedUrl is false for APIs that send the audio url in the clear. */
+	Song(Map<String,Object> d, PandoraRadio instance, boolean encryptedUrl) {
 		try {
 			pandora = instance;
 			
@@ -62,9 +72,27 @@ public class Song {
 			albumDetailURL = (String) d.get("albumDetailURL");
 			artRadio = (String) d.get("artRadio");
 			songType = (Integer) d.get("songType");
+		} catch(RuntimeException ex) {
+			ex.printStackTrace();
+			return;
+		}
+		init(encryptedUrl);
+	}
 
-			int aul = audioUrl.length();
-			audioUrl = audioUrl.substring(0, aul-48) + pandora.pandoraDecrypt(audioUrl.substring(aul-48));
+	/* Filled in member by member by a Binder, which calls init() once it's done. */
+	Song(PandoraRadio instance) {
+		pandora = instance;
+	}
+
+	private void init() {
+		init(true);
+	}
+
+	private void init(boolean encryptedUrl) {
+		try {
+			if(encryptedUrl) {
+				decryptAudioUrl();
+			}
 
 			tired = false;
 			message = "";
@@ -77,6 +105,98 @@ public class Song {
 		}
 	}
 
+	private void decryptAudioUrl() {
+		// the last 48 characters are the encrypted part of the url
+		int aul = audioUrl.length();
+		byte[] plain = new byte[PandoraRadio.decryptedCapacity(48)];
+		int plainLength = pandora.pandoraDecrypt(audioUrl, aul-48, aul, plain, 0);
+
+		StringBuilder url = new StringBuilder(aul - 48 + plainLength);
+		url.append(audioUrl, 0, aul-48);
+		for(int i=0; i<plainLength; i++) {
+			url.append((char) (plain[i] & 0xff));
+		}
+		audioUrl = url.toString();
+	}
+
+	/* Reads playlist.getFragment structs straight into Songs, members not listed here are
+	 * skipped by the parser. */
+	static final class Binder implements XMLRPCStructReader.Binder<Song> {
+		private static final int ALBUM_TITLE = 0;
+		private static final int ARTIST_SUMMARY = 1;
+		private static final int ARTIST_MUSIC_ID = 2;
+		private static final int AUDIO_URL = 3;
+		private static final int FILE_GAIN = 4;
+		private static final int IDENTITY = 5;
+		private static final int MUSIC_ID = 6;
+		private static final int RATING = 7;
+		private static final int STATION_ID = 8;
+		private static final int SONG_TITLE = 9;
+		private static final int USER_SEED = 10;
+		private static final int SONG_DETAIL_URL = 11;
+		private static final int ALBUM_DETAIL_URL = 12;
+		private static final int ART_RADIO = 13;
+		private static final int SONG_TYPE = 14;
+
+		private static final HashMap<String,Integer> MEMBERS = new HashMap<String,Integer>();
+		static {
+			MEMBERS.put("albumTitle", ALBUM_TITLE);
+			MEMBERS.put("artistSummary", ARTIST_SUMMARY);
+			MEMBERS.put("artistMusicId", ARTIST_MUSIC_ID);
+			MEMBERS.put("audioURL", AUDIO_URL);
+			MEMBERS.put("fileGain", FILE_GAIN);
+			MEMBERS.put("identity", IDENTITY);
+			MEMBERS.put("musicId", MUSIC_ID);
+			MEMBERS.put("rating", RATING);
+			MEMBERS.put("stationId", STATION_ID);
+			MEMBERS.put("songTitle", SONG_TITLE);
+			MEMBERS.put("userSeed", USER_SEED);
+			MEMBERS.put("songDetailURL", SONG_DETAIL_URL);
+			MEMBERS.put("albumDetailURL", ALBUM_DETAIL_URL);
+			MEMBERS.put("artRadio", ART_RADIO);
+			MEMBERS.put("songType", SONG_TYPE);
+		}
+
+		private final PandoraRadio pandora;
+
+		Binder(PandoraRadio pandora) {
+			this.pandora = pandora;
+		}
+
+		public Song newTarget() {
+			return new Song(pandora);
+		}
+
+		public void bindMember(Song song, String name, XMLRPCStructReader value) throws XmlPullParserException, IOException {
+			Integer member = MEMBERS.get(name);
+			if(member == null) {
+				return;
+			}
+			switch(member.intValue()) {
+			case ALBUM_TITLE: song.album = value.readString(); break;
+			case ARTIST_SUMMARY: song.artist = value.readString(); break;
+			case ARTIST_MUSIC_ID: song.artistMusicId = value.readString(); break;
+			case AUDIO_URL: song.audioUrl = value.readString(); break;
+			case FILE_GAIN: song.fileGain = value.readString(); break;
+			case IDENTITY: song.identity = value.readString(); break;
+			case MUSIC_ID: song.musicId = value.readString(); break;
+			case RATING: song.rating = value.readInt(); break;
+			case STATION_ID: song.stationId = value.readString(); break;
+			case SONG_TITLE: song.title = value.readString(); break;
+			case USER_SEED: song.userSeed = value.readString(); break;
+			case SONG_DETAIL_URL: song.songDetailURL = value.readString(); break;
+			case ALBUM_DETAIL_URL: song.albumDetailURL = value.readString(); break;
+			case ART_RADIO: song.artRadio = value.readString(); break;
+			case SONG_TYPE: song.songType = value.readInt(); break;
+			}
+		}
+
+		public Song complete(Song song) {
+			song.init();
+			return song;
+		}
+	}
+
 	public int getSongType() {
 		return songType.intValue();
 	}
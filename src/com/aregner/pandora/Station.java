@@ -17,9 +17,14 @@
  */
 package com.aregner.pandora;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Vector;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlrpc.android.IXMLRPCElementListener;
+import org.xmlrpc.android.XMLRPCStructReader;
 
 
 public class Station implements Comparable<Station>, Serializable {
@@ -31,11 +36,11 @@ public class Station implements Comparable<Station>, Serializable {
 	private boolean isQuickMix;
 	private String name;
 
-	transient private Song[] currentPlaylist;
+	transient private volatile Song[] currentPlaylist;
 	transient private boolean useQuickMix;
 	transient private PandoraRadio pandora;
 
-	public Station(HashMap<String, Object> d, PandoraRadio instance) {
+	public Station(Map<String, Object> d, PandoraRadio instance) {
 		id = (String) d.get("stationId");
 		idToken = (String) d.get("stationIdToken");
 		isCreator = (Boolean) d.get("isCreator");
@@ -45,6 +50,43 @@ public class Station implements Comparable<Station>, Serializable {
 		pandora = instance;
 		useQuickMix = false;
 	}
+
+	/* Filled in member by member by a Binder. */
+	Station(PandoraRadio instance) {
+		pandora = instance;
+		useQuickMix = false;
+	}
+
+	/* Reads station.getStations structs straight into Stations. */
+	static final class Binder implements XMLRPCStructReader.Binder<Station> {
+		private final PandoraRadio pandora;
+
+		Binder(PandoraRadio pandora) {
+			this.pandora = pandora;
+		}
+
+		public Station newTarget() {
+			return new Station(pandora);
+		}
+
+		public void bindMember(Station station, String name, XMLRPCStructReader value) throws XmlPullParserException, IOException {
+			// only five members, comparing names is cheaper than a lookup here
+			if(name.equals("stationId"))
+				station.id = value.readString();
+			else if(name.equals("stationIdToken"))
+				station.idToken = value.readString();
+			else if(name.equals("isCreator"))
+				station.isCreator = value.readBoolean();
+			else if(name.equals("isQuickMix"))
+				station.isQuickMix = value.readBoolean();
+			else if(name.equals("stationName"))
+				station.name = value.readString();
+		}
+
+		public Station complete(Station station) {
+			return station;
+		}
+	}
 	
 	public Song[] getPlaylist(boolean forceDownload) {
 		return getPlaylist(PandoraRadio.DEFAULT_AUDIO_FORMAT, forceDownload);
@@ -59,26 +101,65 @@ public class Station implements Comparable<Station>, Serializable {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	public Song[] getPlaylist(String format) {
-		Vector<Object> args = new Vector<Object>(7);
-		args.add(id);
-		args.add("0");
-		args.add("");
-		args.add("");
-		args.add(format);
-		args.add("0");
-		args.add("0");
+		return getPlaylist(format, null);
+	}
+
+	/** Downloads a new playlist in the background. */
+	public RpcFuture<Song[]> getPlaylistAsync(String format) {
+		return getPlaylistAsync(format, null);
+	}
+
+	/** Same as below, in the background; listener is called on the thread doing the call. */
+	public RpcFuture<Song[]> getPlaylistAsync(final String format, final IXMLRPCElementListener<? super Song> listener) {
+		return pandora.submit(new Callable<Song[]>() {
+			public Song[] call() {
+				return getPlaylist(format, listener);
+			}
+		});
+	}
 
-		Object result = pandora.xmlrpcCall("playlist.getFragment", args);
+	/** Downloads a new playlist, listener gets each song as soon as it has been read so the
+	 *  first one can start buffering while the rest is still on its way. */
+	@SuppressWarnings("unchecked")
+	public Song[] getPlaylist(String format, final IXMLRPCElementListener<? super Song> listener) {
+		// not idempotent as such, but two requests for the next fragment of this station at
+		// the same time both want one fragment, not two
+		RpcCall call = RpcCall.builder("playlist.getFragment")
+				.add(id).add("0").add("").add("").add(format).add("0").add("0").idempotent().build();
+
+		// songs read by another caller's request never went past this listener
+		final int[] streamed = new int[1];
+		IXMLRPCElementListener<Song> counter = null;
+		if(listener != null) {
+			counter = new IXMLRPCElementListener<Song>() {
+				public void onElement(int index, Song element) {
+					streamed[0]++;
+					listener.onElement(index, element);
+				}
+			};
+		}
+
+		Object result = pandora.xmlrpcCall(call, pandora.getPlaylistReader(counter));
 
 		if(result instanceof Object[]) {
 			Object[] fragmentsResult = (Object[]) result;
 			Song[] list = new Song[fragmentsResult.length];
 			for(int f=0; f<fragmentsResult.length; f++) {
-				list[f] = new Song((HashMap<String,Object>)fragmentsResult[f], pandora);
+				// already bound unless direct binding is turned off
+				if(fragmentsResult[f] instanceof Song) {
+					list[f] = (Song) fragmentsResult[f];
+				}
+				else {
+					list[f] = new Song((Map<String,Object>)fragmentsResult[f], pandora);
+				}
+				if(listener != null && f >= streamed[0])
+					listener.onElement(f, list[f]);
 			}
 			currentPlaylist = list;
+			if(list.length > 0) {
+				pandora.rememberStationImageUrl(this, list[0].getAlbumCoverUrl());
+			}
 		}
 
 		return currentPlaylist;
@@ -96,9 +177,17 @@ public class Station implements Comparable<Station>, Serializable {
 		return name;
 	}
 
+	/** Album art from the last playlist downloaded for this station, or null if there hasn't
+	 *  been one yet.  Never downloads one itself: that would use up songs just for a picture. */
 	public String getStationImageUrl() {
-		getPlaylist(false);
-		return currentPlaylist[0].getAlbumCoverUrl();
+		return pandora.getStationImageUrl(this);
+	}
+
+	/* Stations read back from a cache have no PandoraRadio yet. */
+	void attach(PandoraRadio instance) {
+		if(pandora == null) {
+			pandora = instance;
+		}
 	}
 	
 	public int compareTo(Station another) {
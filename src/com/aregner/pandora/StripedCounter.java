@@ -0,0 +1,59 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* A sum that threads add to without contending: each thread adds to a cell of its own
+ * (picked by thread id, a cache line apart from the others) and get() adds the cells up.
+ */
+final class StripedCounter {
+	private static final int STRIPES = 8;
+	// longs per cache line, cells this far apart don't share one
+	private static final int SPACING = 8;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * SPACING);
+
+	void add(long n) {
+		cells.addAndGet(cell(), n);
+	}
+
+	void increment() {
+		add(1);
+	}
+
+	long get() {
+		long sum = 0;
+		for(int s=0; s<STRIPES; s++) {
+			sum += cells.get(s * SPACING);
+		}
+		return sum;
+	}
+
+	void reset() {
+		for(int s=0; s<STRIPES; s++) {
+			cells.set(s * SPACING, 0);
+		}
+	}
+
+	private static int cell() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return ((h >>> 16) & (STRIPES - 1)) * SPACING;
+	}
+}
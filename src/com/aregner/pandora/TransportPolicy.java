@@ -0,0 +1,192 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/* How long PandoraRadio waits for each method, and what it does when that's not enough.
+ *
+ * A call's deadline follows how long the method has been taking, the way TCP sets its
+ * retransmission timeout: a smoothed round trip time plus four times its mean deviation,
+ * kept between a floor and a ceiling, and doubled after every timeout until a call answers
+ * again.  Idempotent calls that fail are retried after a jittered, growing pause, and can be
+ * hedged: when no answer has come after the method's 95th percentile latency the same call
+ * is sent once more, and whichever answers first is used.
+ */
+public class TransportPolicy {
+
+	public static final long DEFAULT_TIMEOUT = 15 * 1000;
+	public static final long DEFAULT_MIN_TIMEOUT = 3 * 1000;
+	public static final long DEFAULT_MAX_TIMEOUT = 30 * 1000;
+	public static final int DEFAULT_RETRIES = 2;
+
+	static final long BASE_BACKOFF = 250;
+	static final long MAX_BACKOFF = 4 * 1000;
+	// latencies kept per method for the percentile, and how many before hedging starts
+	static final int SAMPLES = 64;
+	static final int MIN_HEDGE_SAMPLES = 16;
+
+	/* Settings and round trip statistics of one method. */
+	private static final class Method {
+		long initialTimeout = DEFAULT_TIMEOUT;
+		long minTimeout = DEFAULT_MIN_TIMEOUT;
+		long maxTimeout = DEFAULT_MAX_TIMEOUT;
+		int retries = DEFAULT_RETRIES;
+		boolean hedge;
+
+		// guarded by this
+		long srtt = -1;
+		long rttvar;
+		int timeouts;
+		final long[] samples = new long[SAMPLES];
+		int sampleCount;
+	}
+
+	private final Method defaults = new Method();
+	// guarded by itself
+	private final Map<String, Method> methods = new HashMap<String, Method>();
+	private final Random jitter = new Random();
+
+	/** Deadline of method until it has answered a few times, and the range its adaptive
+	 *  deadline is kept in after that. */
+	public void setTimeout(String method, long initialMillis, long minMillis, long maxMillis) {
+		if(minMillis <= 0 || minMillis > maxMillis) {
+			throw new IllegalArgumentException("need 0 < minMillis <= maxMillis");
+		}
+		Method m = get(method);
+		synchronized(m) {
+			m.initialTimeout = Math.max(minMillis, Math.min(initialMillis, maxMillis));
+			m.minTimeout = minMillis;
+			m.maxTimeout = maxMillis;
+		}
+	}
+
+	/** How many more times a failed idempotent call of method is sent. */
+	public void setRetries(String method, int retries) {
+		Method m = get(method);
+		synchronized(m) {
+			m.retries = Math.max(0, retries);
+		}
+	}
+
+	/** Whether idempotent calls of method that are slow get sent a second time. */
+	public void setHedging(String method, boolean hedge) {
+		Method m = get(method);
+		synchronized(m) {
+			m.hedge = hedge;
+		}
+	}
+
+	/** Deadline for the next call of method, in ms. */
+	public long getTimeout(String method) {
+		Method m = find(method);
+		synchronized(m) {
+			long timeout = m.srtt < 0 ? m.initialTimeout : m.srtt + 4 * m.rttvar;
+			timeout = Math.max(m.minTimeout, Math.min(timeout, m.maxTimeout));
+			// each timeout in a row doubles the deadline, up to the ceiling
+			for(int t=0; t<m.timeouts && timeout < m.maxTimeout; t++) {
+				timeout *= 2;
+			}
+			return Math.min(timeout, m.maxTimeout);
+		}
+	}
+
+	public int getRetries(String method) {
+		Method m = find(method);
+		synchronized(m) {
+			return m.retries;
+		}
+	}
+
+	/** How long to wait for an answer before hedging a call of method, or -1 not to. */
+	public long getHedgeDelay(String method) {
+		Method m = find(method);
+		synchronized(m) {
+			if(!m.hedge || m.sampleCount < MIN_HEDGE_SAMPLES) {
+				return -1;
+			}
+			int n = Math.min(m.sampleCount, SAMPLES);
+			long[] sorted = new long[n];
+			System.arraycopy(m.samples, 0, sorted, 0, n);
+			Arrays.sort(sorted);
+			return sorted[(n * 95 + 99) / 100 - 1];
+		}
+	}
+
+	/** Pause before the given retry (0 for the first), random up to an exponential limit. */
+	public long getBackoff(int retry) {
+		long limit = BASE_BACKOFF << Math.min(retry, 16);
+		limit = Math.min(limit, MAX_BACKOFF);
+		synchronized(jitter) {
+			return limit / 2 + (long) (jitter.nextDouble() * (limit / 2));
+		}
+	}
+
+	/** A call of method answered after millis. */
+	public void onSuccess(String method, long millis) {
+		Method m = get(method);
+		synchronized(m) {
+			if(m.srtt < 0) {
+				m.srtt = millis;
+				m.rttvar = millis / 2;
+			}
+			else {
+				// RFC 6298 gains: 1/8 for the mean, 1/4 for the deviation
+				m.rttvar += (Math.abs(m.srtt - millis) - m.rttvar) / 4;
+				m.srtt += (millis - m.srtt) / 8;
+			}
+			m.timeouts = 0;
+			m.samples[m.sampleCount++ % SAMPLES] = millis;
+			if(m.sampleCount == 2 * SAMPLES) {
+				// keep the index from overflowing, the ring is full either way
+				m.sampleCount = SAMPLES;
+			}
+		}
+	}
+
+	/** A call of method ran past its deadline. */
+	public void onTimeout(String method) {
+		Method m = get(method);
+		synchronized(m) {
+			m.timeouts++;
+		}
+	}
+
+	/* Settings for method, created with the defaults when it has none of its own yet. */
+	private Method get(String method) {
+		synchronized(methods) {
+			Method m = methods.get(method);
+			if(m == null) {
+				m = new Method();
+				methods.put(method, m);
+			}
+			return m;
+		}
+	}
+
+	/* Same as above, but methods nothing is known about share the defaults. */
+	private Method find(String method) {
+		synchronized(methods) {
+			Method m = methods.get(method);
+			return m != null ? m : defaults;
+		}
+	}
+}
@@ -17,24 +17,18 @@
  */
 package com.aregner.pandora;
 
-import java.io.BufferedInputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.util.AbstractCollection;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Vector;
 
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserFactory;
-import org.xmlrpc.android.Tag;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCCallStats;
 import org.xmlrpc.android.XMLRPCException;
-import org.xmlrpc.android.XMLRPCFault;
 
 public class XmlRpc extends org.xmlrpc.android.XMLRPCClient {
 
@@ -44,71 +38,24 @@ public class XmlRpc extends org.xmlrpc.android.XMLRPCClient {
 
 	/* This method is extracted from the parent class with slight modifications
 	 * for sending a request with a predetermined body content. */
-	@SuppressWarnings("unchecked")
 	public Object callWithBody(String url, String body) throws XMLRPCException {
-
-		postMethod.setURI(URI.create(url));
-
 		try {
-			// set POST body
-			HttpEntity entity = new StringEntity(body);
-			postMethod.setEntity(entity);
-
-			//Log.d(Tag.LOG, "ros HTTP POST");
-			// execute HTTP POST request
-			HttpResponse response = client.execute(postMethod);
-			//Log.d(Tag.LOG, "ros HTTP POSTed");
-
-			// check status code
-			int statusCode = response.getStatusLine().getStatusCode();
-			//Log.d(Tag.LOG, "ros status code:" + statusCode);
-			if (statusCode != HttpStatus.SC_OK) {
-				throw new XMLRPCException("HTTP status code: " + statusCode + " != " + HttpStatus.SC_OK);
-			}
-
-			// parse response stuff
-			//
-			// setup pull parser
-			XmlPullParser pullParser = XmlPullParserFactory.newInstance().newPullParser();
-			entity = response.getEntity();
-			Reader reader = new InputStreamReader(new BufferedInputStream(entity.getContent()));
-			// for testing purposes only
-			// reader = new StringReader("<?xml version='1.0'?><methodResponse><params><param><value>\n\n\n</value></param></params></methodResponse>");
-			pullParser.setInput(reader);
-
-			// lets start pulling...
-			pullParser.nextTag();
-			pullParser.require(XmlPullParser.START_TAG, null, Tag.METHOD_RESPONSE);
-
-			pullParser.nextTag(); // either Tag.PARAMS (<params>) or Tag.FAULT (<fault>)  
-			String tag = pullParser.getName();
-			if (tag.equals(Tag.PARAMS)) {
-				// normal response
-				pullParser.nextTag(); // Tag.PARAM (<param>)
-				pullParser.require(XmlPullParser.START_TAG, null, Tag.PARAM);
-				pullParser.nextTag(); // Tag.VALUE (<value>)
-				// no parser.require() here since its called in XMLRPCSerializer.deserialize() below
+			return callWithBody(url, new StringEntity(body));
+		} catch (UnsupportedEncodingException e) {
+			throw new XMLRPCException(e);
+		}
+	}
 
-				// deserialize result
-				Object obj = iXMLRPCSerializer.deserialize(pullParser);
-				entity.consumeContent();
-				return obj;
-			}
-			else if (tag.equals(Tag.FAULT)) {
-				// fault response
-				pullParser.nextTag(); // Tag.VALUE (<value>)
-				// no parser.require() here since its called in XMLRPCSerializer.deserialize() below
+	/* Same as above, but the body is written to the connection by the given entity. */
+	public Object callWithBody(String url, HttpEntity entity) throws XMLRPCException {
+		return callWithBody(url, entity, null);
+	}
 
-				// deserialize fault result
-				Map<String, Object> map = (Map<String, Object>) iXMLRPCSerializer.deserialize(pullParser);
-				String faultString = (String) map.get(Tag.FAULT_STRING);
-				int faultCode = (Integer) map.get(Tag.FAULT_CODE);
-				entity.consumeContent();
-				throw new XMLRPCFault(faultString, faultCode);
-			} else {
-				entity.consumeContent();
-				throw new XMLRPCException("Bad tag <" + tag + "> in XMLRPC response - neither <params> nor <fault>");
-			}
+	/* Same as above, with the result read by resultReader rather than into maps and arrays.
+	 * Each call gets its own request, so calls from several threads can overlap. */
+	public Object callWithBody(String url, HttpEntity entity, IXMLRPCResultReader resultReader) throws XMLRPCException {
+		try {
+			return execute(URI.create(url), entity, resultReader);
 		} catch (XMLRPCException e) {
 			e.printStackTrace();
 			// catch & propagate XMLRPCException/XMLRPCFault
@@ -119,66 +66,78 @@ public class XmlRpc extends org.xmlrpc.android.XMLRPCClient {
 			throw new XMLRPCException(e);
 		}
 	}
-	
-	public void addHeader(String header, String value) {
-		postMethod.addHeader(header, value);
+
+	/* A request for url with entity as its body, to be sent by callWithRequest(). */
+	public HttpPost newRequest(String url, HttpEntity entity) {
+		HttpPost post = newPost(URI.create(url));
+		post.setEntity(entity);
+		return post;
+	}
+
+	/* Sends a request from newRequest(), giving up after timeoutMillis (0 for never) with an
+	 * XMLRPCTimeoutException.  Aborting the request from another thread ends the call too. */
+	public Object callWithRequest(HttpPost post, IXMLRPCResultReader resultReader, long timeoutMillis) throws XMLRPCException {
+		return callWithRequest(post, resultReader, timeoutMillis, null);
 	}
 
+	/* Same as above, with the sizes and timings of the call written to stats. */
+	public Object callWithRequest(HttpPost post, IXMLRPCResultReader resultReader, long timeoutMillis, XMLRPCCallStats stats) throws XMLRPCException {
+		try {
+			return execute(post, resultReader, timeoutMillis, stats);
+		} catch (XMLRPCException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new XMLRPCException(e);
+		}
+	}
+
+	/* The helpers below are kept for callers that want the XML as a string, they all go
+	 * through XmlRpcRequestWriter so there is only one encoder to keep correct. */
+
 	public static String value(String v) {
-		return "<value><string>" + v.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;") + "</string></value>";
+		return release(XmlRpcRequestWriter.obtain().value(v));
 	}
 	public static String value(boolean v) {
-		return v ? "<value><boolean>1</boolean></value>" : "<value><boolean>0</boolean></value>";
+		return release(XmlRpcRequestWriter.obtain().value(v));
 	}
 	public static String value(int v) {
-		return "<value><int>" + String.valueOf(v) + "</int></value>";
+		return release(XmlRpcRequestWriter.obtain().value(v));
+	}
+	public static String value(long v) {
+		return release(XmlRpcRequestWriter.obtain().value(v));
+	}
+	public static String value(double v) {
+		return release(XmlRpcRequestWriter.obtain().value(v));
 	}
 	public static String value(Number v) {
-		return value(v.intValue());
+		return valueGuess(v);
 	}
 	public static String value(String[] list) {
-		StringBuilder result = new StringBuilder("<value><array><data>");
-		for(int i=0; i<list.length; i++) {
-			result.append(value(list[i]));
-		}
-		return result.append("</data></array></value>").toString();
+		return valueGuess(list);
 	}
 	public static String value(int[] list) {
-		StringBuilder result = new StringBuilder("<value><array><data>");
-		for(int i=0; i<list.length; i++) {
-			result.append(value(list[i]));
-		}
-		return result.append("</data></array></value>").toString();
+		return valueGuess(list);
 	}
 	public static String value(AbstractCollection<?> list) {
-		StringBuilder result = new StringBuilder("<value><array><data>");
-		Iterator<?> listIter = list.iterator();
-		while(listIter.hasNext()) {
-			result.append(valueGuess(listIter.next()));
-		}
-		return result.append("</data></array></value>").toString();
+		return valueGuess(list);
 	}
 
 	public static String valueGuess(Object v) {
-		if(v instanceof Number)
-			return value((Number)v);
-		else if(v instanceof Boolean)
-			return value((Boolean)v);
-		else if(v instanceof String)
-			return value((String)v);
-		else if(v instanceof AbstractCollection<?>)
-			return value((AbstractCollection<?>)v);
-		else
-			return value(v.toString());
+		return release(XmlRpcRequestWriter.obtain().value(v));
 	}
 
 	public static String makeCall(String method, Vector<Object> args) {
-		StringBuilder argsStr = new StringBuilder();
+		XmlRpcRequestWriter xml = XmlRpcRequestWriter.obtain().startCall(method);
 		Iterator<Object> argsIter = args.iterator();
 		while(argsIter.hasNext()) {
-			Object item = argsIter.next();
-			argsStr.append("<param>").append(valueGuess(item)).append("</param>");
+			xml.param(argsIter.next());
 		}
-		return "<?xml version=\"1.0\"?><methodCall><methodName>" + method + "</methodName><params>" + argsStr.toString() + "</params></methodCall>";
+		return release(xml.endCall());
+	}
+
+	private static String release(XmlRpcRequestWriter xml) {
+		String result = xml.toString();
+		xml.recycle();
+		return result;
 	}
 }
@@ -0,0 +1,301 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/* Writes an XML-RPC methodCall as UTF-8 straight into a growable byte buffer.  Strings are
+ * escaped and encoded in the same pass and numbers are written digit by digit, so a call
+ * costs no intermediate strings.  Writers are pooled: obtain() one, hand buffer()/length()
+ * to whatever sends the body, and recycle() it once the request is done.
+ *
+ * Supported values: String, boolean, int (also Byte, Short), long as i8, double (also Float),
+ * Map as struct, and Collection or arrays as array, nested to any depth.
+ */
+public final class XmlRpcRequestWriter {
+
+	private static final int INITIAL_SIZE = 1024;
+	// writers that grew past this are dropped instead of pooled
+	private static final int MAX_POOLED_SIZE = 64 * 1024;
+	private static final int MAX_POOLED = 8;
+
+	private static final ConcurrentLinkedQueue<XmlRpcRequestWriter> pool = new ConcurrentLinkedQueue<XmlRpcRequestWriter>();
+
+	private static final byte[] DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' };
+
+	private byte[] buffer = new byte[INITIAL_SIZE];
+	private int length;
+
+	public XmlRpcRequestWriter() {
+	}
+
+	public static XmlRpcRequestWriter obtain() {
+		XmlRpcRequestWriter writer = pool.poll();
+		if(writer == null) {
+			writer = new XmlRpcRequestWriter();
+		}
+		writer.length = 0;
+		return writer;
+	}
+
+	/** Returns the writer to the pool, its buffer must not be used after this. */
+	public void recycle() {
+		if(buffer.length <= MAX_POOLED_SIZE && pool.size() < MAX_POOLED) {
+			pool.offer(this);
+		}
+	}
+
+	public byte[] buffer() {
+		return buffer;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public void reset() {
+		length = 0;
+	}
+
+	public XmlRpcRequestWriter startCall(String method) {
+		raw("<?xml version=\"1.0\"?><methodCall><methodName>");
+		escaped(method);
+		return raw("</methodName><params>");
+	}
+
+	public XmlRpcRequestWriter endCall() {
+		return raw("</params></methodCall>");
+	}
+
+	public XmlRpcRequestWriter param(String v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+	public XmlRpcRequestWriter param(boolean v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+	public XmlRpcRequestWriter param(int v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+	public XmlRpcRequestWriter param(long v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+	public XmlRpcRequestWriter param(double v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+	public XmlRpcRequestWriter param(Object v) {
+		raw("<param>");
+		value(v);
+		return raw("</param>");
+	}
+
+	public XmlRpcRequestWriter value(String v) {
+		raw("<value><string>");
+		escaped(v);
+		return raw("</string></value>");
+	}
+	public XmlRpcRequestWriter value(boolean v) {
+		return raw(v ? "<value><boolean>1</boolean></value>" : "<value><boolean>0</boolean></value>");
+	}
+	public XmlRpcRequestWriter value(int v) {
+		raw("<value><int>");
+		number(v);
+		return raw("</int></value>");
+	}
+	public XmlRpcRequestWriter value(long v) {
+		raw("<value><i8>");
+		number(v);
+		return raw("</i8></value>");
+	}
+	public XmlRpcRequestWriter value(double v) {
+		raw("<value><double>");
+		raw(String.valueOf(v));
+		return raw("</double></value>");
+	}
+
+	@SuppressWarnings("unchecked")
+	public XmlRpcRequestWriter value(Object v) {
+		if(v instanceof String)
+			return value((String) v);
+		else if(v instanceof Integer || v instanceof Short || v instanceof Byte)
+			return value(((Number) v).intValue());
+		else if(v instanceof Long)
+			return value(((Long) v).longValue());
+		else if(v instanceof Double || v instanceof Float)
+			return value(((Number) v).doubleValue());
+		else if(v instanceof Boolean)
+			return value(((Boolean) v).booleanValue());
+		else if(v instanceof Map<?,?>)
+			return struct((Map<String,?>) v);
+		else if(v instanceof Collection<?>)
+			return array(((Collection<?>) v).iterator());
+		else if(v instanceof Object[]) {
+			Object[] list = (Object[]) v;
+			raw("<value><array><data>");
+			for(int i=0; i<list.length; i++) {
+				value(list[i]);
+			}
+			return raw("</data></array></value>");
+		}
+		else if(v instanceof int[]) {
+			int[] list = (int[]) v;
+			raw("<value><array><data>");
+			for(int i=0; i<list.length; i++) {
+				value(list[i]);
+			}
+			return raw("</data></array></value>");
+		}
+		else if(v == null)
+			throw new IllegalArgumentException("XML-RPC has no null value");
+		else
+			return value(v.toString());
+	}
+
+	private XmlRpcRequestWriter array(Iterator<?> items) {
+		raw("<value><array><data>");
+		while(items.hasNext()) {
+			value(items.next());
+		}
+		return raw("</data></array></value>");
+	}
+
+	private XmlRpcRequestWriter struct(Map<String,?> map) {
+		raw("<value><struct>");
+		Iterator<? extends Map.Entry<String,?>> entries = map.entrySet().iterator();
+		while(entries.hasNext()) {
+			Map.Entry<String,?> entry = entries.next();
+			raw("<member><name>");
+			escaped(entry.getKey());
+			raw("</name>");
+			value(entry.getValue());
+			raw("</member>");
+		}
+		return raw("</struct></value>");
+	}
+
+	/* Markup and numbers, all ASCII. */
+	private XmlRpcRequestWriter raw(String s) {
+		int n = s.length();
+		ensure(n);
+		byte[] b = buffer;
+		int pos = length;
+		for(int i=0; i<n; i++) {
+			b[pos++] = (byte) s.charAt(i);
+		}
+		length = pos;
+		return this;
+	}
+
+	/* Escapes &, < and > and encodes UTF-8 in a single pass over the characters. */
+	private void escaped(String s) {
+		int n = s.length();
+		ensure(n);
+		for(int i=0; i<n; i++) {
+			char c = s.charAt(i);
+			if(c < 0x80) {
+				if(c == '&')
+					raw("&amp;");
+				else if(c == '<')
+					raw("&lt;");
+				else if(c == '>')
+					raw("&gt;");
+				else {
+					ensure(1);
+					buffer[length++] = (byte) c;
+				}
+			}
+			else if(c < 0x800) {
+				ensure(2);
+				buffer[length++] = (byte) (0xc0 | (c >> 6));
+				buffer[length++] = (byte) (0x80 | (c & 0x3f));
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i+1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				ensure(4);
+				buffer[length++] = (byte) (0xf0 | (cp >> 18));
+				buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				buffer[length++] = (byte) (0x80 | (cp & 0x3f));
+			}
+			else {
+				// lone surrogates can't be encoded, same replacement String.getBytes() uses
+				if(c >= 0xd800 && c <= 0xdfff)
+					c = '?';
+				ensure(3);
+				buffer[length++] = (byte) (0xe0 | (c >> 12));
+				buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[length++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	private void number(long v) {
+		if(v == Long.MIN_VALUE) {
+			raw(String.valueOf(v));
+			return;
+		}
+		ensure(20);
+		if(v < 0) {
+			buffer[length++] = '-';
+			v = -v;
+		}
+		int start = length;
+		do {
+			buffer[length++] = DIGITS[(int) (v % 10)];
+			v /= 10;
+		} while(v != 0);
+
+		// digits came out backwards
+		for(int i=start, j=length-1; i<j; i++, j--) {
+			byte t = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = t;
+		}
+	}
+
+	private void ensure(int extra) {
+		if(length + extra > buffer.length) {
+			byte[] larger = new byte[Math.max(buffer.length * 2, length + extra)];
+			System.arraycopy(buffer, 0, larger, 0, length);
+			buffer = larger;
+		}
+	}
+
+	@Override
+	public String toString() {
+		try {
+			return new String(buffer, 0, length, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every VM is required to support UTF-8
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/* Pandoroid Radio - open source pandora.com client for android
+ * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.aregner.pandora;
+
+import java.util.Map;
+
+import org.apache.http.client.methods.HttpPost;
+import org.xmlrpc.android.IXMLRPCResultReader;
+import org.xmlrpc.android.XMLRPCCallStats;
+import org.xmlrpc.android.XMLRPCException;
+import org.xmlrpc.android.XMLRPCFault;
+import org.xmlrpc.android.XMLRPCScanningSerializer;
+
+/* The XML-RPC v32 API at pandora.com: calls are sent as they are, Blowfish encrypted with
+ * the keys PandoraRadio holds, and results are read by the reader they come with.
+ */
+public class XmlRpcTransport implements PandoraTransport {
+
+	public static final String DEFAULT_URL = "http://www.pandora.com/radio/xmlrpc/v"+PandoraRadio.PROTOCOL_VERSION+"?";
+	private static final String AUTHENTICATE = "listener.authenticateListener";
+	// the fault string is "<exception>: <ip>|<time>|<code>|<message>", this code says the
+	// session token has expired, or was never valid
+	public static final String AUTH_INVALID_TOKEN = "AUTH_INVALID_TOKEN";
+
+	private final PandoraRadio pandora;
+	private final String url;
+	private final XmlRpc xmlrpc;
+	private volatile String authToken;
+	private volatile String rid;
+
+	public XmlRpcTransport(PandoraRadio pandora) {
+		this(pandora, DEFAULT_URL);
+	}
+
+	/** url ends where the query string starts, like DEFAULT_URL does. */
+	public XmlRpcTransport(PandoraRadio pandora, String url) {
+		this.pandora = pandora;
+		this.url = url;
+		xmlrpc = new XmlRpc(url);
+		xmlrpc.addHeader("User-agent", PandoraRadio.USER_AGENT);
+		xmlrpc.setSerializer(new XMLRPCScanningSerializer());
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object send(RpcCall call, IXMLRPCResultReader resultReader, long timeoutMillis,
+			XMLRPCCallStats stats, RequestListener listener) throws XMLRPCException {
+		boolean signIn = call.getMethod().equals(AUTHENTICATE);
+		if(signIn) {
+			rid = String.format("%07dP", System.currentTimeMillis() % 1000L);
+			authToken = null;
+		}
+
+		long start = System.nanoTime();
+		StringBuilder url = new StringBuilder(this.url);
+		XmlRpcRequestWriter xml = XmlRpcRequestWriter.obtain();
+		EncryptedEntity data = null;
+		String token = authToken;
+		try {
+			call.render(System.currentTimeMillis()/1000L, token, rid, url, xml);
+			data = pandora.newEncryptedEntity(xml.buffer(), 0, xml.length());
+
+			HttpPost request = xmlrpc.newRequest(url.toString(), data);
+			if(listener != null) {
+				listener.onRequest(request);
+			}
+			stats.addEncodeNanos(System.nanoTime() - start, false);
+			Object result = xmlrpc.callWithRequest(request, resultReader, timeoutMillis, stats);
+
+			if(signIn && result instanceof Map<?,?>) {
+				authToken = (String) ((Map<String,Object>) result).get("authToken");
+			}
+			return result;
+		}
+		catch(XMLRPCFault e) {
+			String fault = e.getFaultString();
+			if(fault != null && fault.indexOf('|' + AUTH_INVALID_TOKEN + '|') >= 0
+					&& token != null && token.equals(authToken)) {
+				// expired: nobody is signed in any more, so isAlive() says so
+				authToken = null;
+			}
+			throw e;
+		}
+		finally {
+			// the body is encrypted while it's written, inside the exchange
+			if(data != null) {
+				stats.addEncodeNanos(Math.min(data.getWriteNanos(), stats.getExchangeNanos()), true);
+			}
+			// the entity is done with the buffer once the call has returned
+			xml.recycle();
+		}
+	}
+
+	public String getSession() {
+		return authToken;
+	}
+
+	public void signOut() {
+		authToken = null;
+	}
+}
@@ -1,5 +1,8 @@
 package org.xmlrpc.android;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * A Base64 Encoder/Decoder.
  * 
@@ -193,6 +196,193 @@ class Base64Coder {
 		return out;
 	}
 
+	/**
+	 * Decodes a range of a character array from Base64 format. Blanks and line breaks
+	 * are skipped.
+	 * 
+	 * @param in
+	 *            a character array containing the Base64 encoded data.
+	 * @param off
+	 *            where the data starts in <code>in</code>.
+	 * @param len
+	 *            number of characters to process in <code>in</code>.
+	 * @return An array containing the decoded data bytes.
+	 * @throws IllegalArgumentException
+	 *             if the input is not valid Base64 encoded data.
+	 */
+	static byte[] decode(char[] in, int off, int len) {
+		Decoder decoder = new Decoder();
+		try {
+			decoder.decode(in, off, len);
+		} catch (IOException e) {
+			// only thrown by an OutputStream, there is none
+			throw new IllegalStateException(e);
+		}
+		return decoder.finish();
+	}
+
+	/**
+	 * Decodes Base64 data handed over in pieces, for text that arrives in several parser
+	 * events or that shouldn't be copied into one string first. Blanks and line breaks are
+	 * skipped wherever they appear. The bytes go into an array that grows as needed, or
+	 * straight to an OutputStream.
+	 */
+	static final class Decoder {
+		private final OutputStream stream;
+		private byte[] out;
+		private int size;
+
+		private int quantum; // bits of the current group of four characters
+		private int count; // characters in the current group
+		private int padding; // '=' in the current group
+		private boolean ended; // a padded group was written, nothing may follow
+
+		/**
+		 * A decoder that collects the bytes, finish() returns them.
+		 */
+		Decoder() {
+			this.stream = null;
+		}
+
+		/**
+		 * A decoder that writes every decoded group to stream.
+		 */
+		Decoder(OutputStream stream) {
+			this.stream = stream;
+		}
+
+		/**
+		 * Decodes in[off..off+len), which may end in the middle of a group.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the input is not valid Base64 encoded data.
+		 * @throws IOException
+		 *             if the OutputStream fails.
+		 */
+		void decode(char[] in, int off, int len) throws IOException {
+			if (stream == null) {
+				reserve((count + len) / 4 * 3);
+			}
+			int end = off + len;
+			for (int i = off; i < end; i++) {
+				if (count == 0 && stream == null) {
+					// whole groups between line breaks, room for them is reserved above
+					while (i + 4 <= end) {
+						int c0 = in[i];
+						int c1 = in[i + 1];
+						int c2 = in[i + 2];
+						int c3 = in[i + 3];
+						if ((c0 | c1 | c2 | c3) > 127) {
+							break;
+						}
+						int b0 = map2[c0];
+						int b1 = map2[c1];
+						int b2 = map2[c2];
+						int b3 = map2[c3];
+						if ((b0 | b1 | b2 | b3) < 0 || ended) {
+							break;
+						}
+						out[size++] = (byte) ((b0 << 2) | (b1 >>> 4));
+						out[size++] = (byte) ((b1 << 4) | (b2 >>> 2));
+						out[size++] = (byte) ((b2 << 6) | b3);
+						i += 4;
+					}
+					if (i == end) {
+						break;
+					}
+				}
+				char c = in[i];
+				if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+					continue;
+				}
+				if (c == '=') {
+					// fills up the last group after two or three characters
+					if (ended || count < 2) {
+						throw new IllegalArgumentException(
+								"Illegal character in Base64 encoded data.");
+					}
+					if (count + ++padding == 4) {
+						flush();
+						ended = true;
+					}
+					continue;
+				}
+				int b = c < 128 ? map2[c] : -1;
+				if (b < 0 || padding > 0 || ended) {
+					throw new IllegalArgumentException(
+							"Illegal character in Base64 encoded data.");
+				}
+				quantum = (quantum << 6) | b;
+				if (++count == 4) {
+					flush();
+				}
+			}
+		}
+
+		/**
+		 * Checks that the data ended on a group boundary.
+		 * 
+		 * @return The decoded bytes, or null when they went to an OutputStream.
+		 * @throws IllegalArgumentException
+		 *             if the last group is incomplete.
+		 */
+		byte[] finish() {
+			if (count != 0 || padding != 0) {
+				throw new IllegalArgumentException(
+						"Length of Base64 encoded input string is not a multiple of 4.");
+			}
+			if (stream != null) {
+				return null;
+			}
+			if (out == null) {
+				return new byte[0];
+			}
+			if (size == out.length) {
+				return out;
+			}
+			byte[] exact = new byte[size];
+			System.arraycopy(out, 0, exact, 0, size);
+			return exact;
+		}
+
+		/* Writes out the current group, a padded one is shorter. */
+		private void flush() throws IOException {
+			int bits = quantum << (6 * (4 - count));
+			int bytes = count - 1;
+			if (stream != null) {
+				stream.write(bits >>> 16);
+				if (bytes > 1) {
+					stream.write(bits >>> 8);
+				}
+				if (bytes > 2) {
+					stream.write(bits);
+				}
+			} else {
+				reserve(3);
+				out[size++] = (byte) (bits >>> 16);
+				if (bytes > 1) {
+					out[size++] = (byte) (bits >>> 8);
+				}
+				if (bytes > 2) {
+					out[size++] = (byte) bits;
+				}
+			}
+			quantum = 0;
+			count = 0;
+			padding = 0;
+		}
+
+		private void reserve(int more) {
+			if (out == null) {
+				out = new byte[Math.max(more, 3)];
+			} else if (size + more > out.length) {
+				byte[] larger = new byte[Math.max(size + more, out.length * 2)];
+				System.arraycopy(out, 0, larger, 0, size);
+				out = larger;
+			}
+		}
+	}
+
 	// Dummy constructor.
 	private Base64Coder() {
 	}
@@ -0,0 +1,22 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+
+import org.xmlpull.v1.XmlSerializer;
+
+/**
+ * Writes values of one class as XML-RPC. Like XMLRPCSerializable, but for classes you
+ * can't change and without building an intermediate map or list: the codec writes the
+ * type element itself (<struct>, <string>, ...), the enclosing <value> is already open.
+ * Register codecs with XMLRPCCodecs.register().
+ */
+public interface IXMLRPCCodec<T> {
+
+	/**
+	 * @param serializer where to write the value
+	 * @param value the value, never null
+	 * @param nested serializer for member and element values, they must be wrapped in
+	 * <value> like everywhere else
+	 */
+	void serialize(XmlSerializer serializer, T value, IXMLRPCSerializer nested) throws IOException;
+}
@@ -0,0 +1,15 @@
+package org.xmlrpc.android;
+
+/**
+ * Receives the elements of an array result one by one, each as soon as it has been read
+ * and while the rest of the response is still coming in. Called on the thread making the
+ * call, so anything slow should be handed off.
+ */
+public interface IXMLRPCElementListener<T> {
+
+	/**
+	 * @param index position of the element in the array
+	 * @param element the element, as it will appear in the result
+	 */
+	void onElement(int index, T element);
+}
@@ -0,0 +1,17 @@
+package org.xmlrpc.android;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Implemented by serializers that come with their own pull parser. When the serializer
+ * set with setSerializer() implements this, responses are parsed with its parsers
+ * instead of the platform's.
+ */
+public interface IXMLRPCParserProvider {
+
+	/**
+	 * A new parser, it is reused for later responses on the same thread.
+	 */
+	XmlPullParser newPullParser() throws XmlPullParserException;
+}
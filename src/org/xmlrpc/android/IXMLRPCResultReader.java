@@ -0,0 +1,20 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Reads the result value of a methodResponse in place of IXMLRPCSerializer.deserialize(),
+ * for callers that want the result in their own objects rather than maps and arrays.
+ */
+public interface IXMLRPCResultReader {
+
+	/**
+	 * @param parser positioned on the result's &lt;value&gt; tag, must be left on its end tag
+	 * @param serializer the client's serializer, for anything the reader doesn't handle itself
+	 * @return the result
+	 */
+	Object read(XmlPullParser parser, IXMLRPCSerializer serializer) throws XmlPullParserException, IOException;
+}
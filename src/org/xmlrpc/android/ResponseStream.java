@@ -0,0 +1,170 @@
+package org.xmlrpc.android;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+
+/**
+ * The body of a response with its Content-Encoding (gzip or deflate) undone as it is read,
+ * so the parser gets XML straight off the wire without the whole body being held anywhere.
+ * Counts the bytes read on both sides of the decompression.
+ */
+final class ResponseStream extends FilterInputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Counter raw;
+	private final Inflater inflater;
+	private long decoded;
+
+	private ResponseStream(InputStream in, Counter raw, Inflater inflater) {
+		super(in);
+		this.raw = raw;
+		this.inflater = inflater;
+	}
+
+	/**
+	 * Opens the content of entity for reading.
+	 * @throws XMLRPCException for a Content-Encoding that can't be undone
+	 */
+	static ResponseStream open(HttpEntity entity) throws IOException, XMLRPCException {
+		Counter raw = new Counter(entity.getContent());
+		Header header = entity.getContentEncoding();
+		String encoding = header != null ? header.getValue().trim().toLowerCase(Locale.US) : "identity";
+
+		if (encoding.equals("identity") || encoding.length() == 0) {
+			return new ResponseStream(raw, raw, null);
+		}
+		if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+			Gzip gzip = new Gzip(raw);
+			return new ResponseStream(gzip, raw, gzip.inflater());
+		}
+		if (encoding.equals("deflate")) {
+			// should come with the zlib header, some servers send the bare stream instead
+			PushbackInputStream in = new PushbackInputStream(raw, 2);
+			int b0 = in.read();
+			int b1 = in.read();
+			if (b1 >= 0) in.unread(b1);
+			if (b0 >= 0) in.unread(b0);
+			boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+			Inflater inflater = new Inflater(!zlib);
+			return new ResponseStream(new InflaterInputStream(in, inflater, BUFFER_SIZE), raw, inflater);
+		}
+		throw new XMLRPCException("Unsupported Content-Encoding: " + encoding);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b >= 0) {
+			decoded++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			decoded += n;
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = in.skip(n);
+		decoded += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/** Bytes of the body read off the connection so far. */
+	long getReceived() {
+		return raw.count;
+	}
+
+	/** Bytes handed out after decompression so far. */
+	long getDecoded() {
+		return decoded;
+	}
+
+	/** Reads the rest of the body off the connection, e.g. the gzip trailer. */
+	void drain() throws IOException {
+		byte[] buffer = new byte[512];
+		while (raw.read(buffer, 0, buffer.length) >= 0) {
+			// counted, nothing else to do
+		}
+	}
+
+	/**
+	 * Frees the inflater. Doesn't close the stream: closing the connection's stream reads
+	 * it to the end, which a call being aborted must not wait for.
+	 */
+	void release() {
+		if (inflater != null) {
+			inflater.end();
+		}
+	}
+
+	/* Counts what is read through it. */
+	private static final class Counter extends FilterInputStream {
+		long count;
+
+		Counter(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/* Lets the inflater go without closing the stream underneath. */
+	private static final class Gzip extends GZIPInputStream {
+		Gzip(InputStream in) throws IOException {
+			super(in, BUFFER_SIZE);
+		}
+
+		Inflater inflater() {
+			return inf;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package org.xmlrpc.android;
+
+/**
+ * How one call went, filled in by XMLRPCClient while it runs for callers that keep metrics.
+ * Times are in nanoseconds; a field stays 0 when the call didn't get that far.
+ */
+public class XMLRPCCallStats {
+	long requestBytes;
+	long responseBytes;
+	long decodedBytes;
+	long exchangeNanos;
+	long encodeNanos;
+	long readNanos;
+
+	/** Length of the request body. */
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+
+	/** Bytes of the response body read off the network, compressed if it was. */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/** Bytes of the response body after decompression. */
+	public long getDecodedBytes() {
+		return decodedBytes;
+	}
+
+	/** From sending the request until the response headers were in, body writing included
+	 *  unless it was moved to the encode time. */
+	public long getExchangeNanos() {
+		return exchangeNanos;
+	}
+
+	/** Building and encrypting the request, as far as the caller added it up. */
+	public long getEncodeNanos() {
+		return encodeNanos;
+	}
+
+	/**
+	 * Counts nanos as time spent building or encrypting the request.
+	 * @param inExchange whether it was spent during the exchange, e.g. by a body encrypted
+	 * while it's written; it's taken off the exchange time then
+	 */
+	public void addEncodeNanos(long nanos, boolean inExchange) {
+		encodeNanos += nanos;
+		if (inExchange) {
+			exchangeNanos = Math.max(0, exchangeNanos - nanos);
+		}
+	}
+
+	/** Reading and parsing the response body, which arrives while it's parsed. */
+	public long getReadNanos() {
+		return readNanos;
+	}
+}
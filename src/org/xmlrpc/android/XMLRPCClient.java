@@ -1,14 +1,20 @@
 package org.xmlrpc.android;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -16,12 +22,28 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+import android.util.Xml;
 
 /**
  * XMLRPCClient allows to call remote XMLRPC method.
@@ -68,27 +90,86 @@ import org.xmlpull.v1.XmlPullParserFactory;
  * You can also pass as a parameter any object implementing XMLRPCSerializable interface. In this
  * case your object overrides getSerializable() telling how to serialize to XMLRPC protocol
  * </p>
+ * <p>
+ * A client can be used from several threads at once. Every call gets a request of its own
+ * and connections come from a pool, so overlapping calls run in parallel and reuse
+ * connections that are still open.
+ * </p>
  */
 
 public class XMLRPCClient extends XMLRPCCommon {
-	protected HttpClient client;
-	protected HttpPost postMethod;
-	private HttpParams httpParams;
+	/** Connection pool limits and keep-alive of clients that don't bring their own HttpClient. */
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 6;
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 3;
+	public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30 * 1000;
+
+	protected final HttpClient client;
+	protected final URI uri;
+
+	// copied on write, every request gets the current array
+	private volatile Header[] headers = {
+		new BasicHeader("Content-Type", "text/xml"),
+		new BasicHeader("Accept-Encoding", "gzip, deflate")
+	};
+
+	// response bodies over all calls, as received and after decompression
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong bytesDecoded = new AtomicLong();
+
+	// aborts requests that are still running at their deadline
+	private static ScheduledExecutorService deadlines;
 
 	/**
 	 * XMLRPCClient constructor. Creates new instance based on server URI
 	 * @param XMLRPC server URI
 	 */
 	public XMLRPCClient(URI uri) {
-		postMethod = new HttpPost(uri);
-		postMethod.addHeader("Content-Type", "text/xml");
-		
+		this(uri, newHttpClient(DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_KEEP_ALIVE_MILLIS));
+	}
+
+	/**
+	 * Creates new instance sending its calls through the given client, e.g. one from
+	 * newHttpClient() shared with other XMLRPCClients. The client must be safe to use from
+	 * several threads if calls overlap.
+	 * @param XMLRPC server URI
+	 * @param HTTP client to execute calls with
+	 */
+	public XMLRPCClient(URI uri, HttpClient client) {
+		this.uri = uri;
+		this.client = client;
+	}
+
+	/**
+	 * Creates a DefaultHttpClient on a ThreadSafeClientConnManager pool.
+	 * 
+	 * @param maxTotal most connections open at once
+	 * @param maxPerRoute most connections open to one host at once
+	 * @param keepAliveMillis how long an idle connection is kept for reuse, shorter if the
+	 * server asks for that in its Keep-Alive header
+	 */
+	public static DefaultHttpClient newHttpClient(int maxTotal, int maxPerRoute, final long keepAliveMillis) {
+		HttpParams params = new BasicHttpParams();
+		ConnManagerParams.setMaxTotalConnections(params, maxTotal);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxPerRoute));
+		HttpProtocolParams.setContentCharset(params, "UTF-8");
 		// WARNING
 		// I had to disable "Expect: 100-Continue" header since I had 
 		// two second delay between sending http POST request and POST body 
-		httpParams = postMethod.getParams();
-		HttpProtocolParams.setUseExpectContinue(httpParams, false);
-		client = new DefaultHttpClient();
+		HttpProtocolParams.setUseExpectContinue(params, false);
+
+		SchemeRegistry schemes = new SchemeRegistry();
+		schemes.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		schemes.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+		DefaultHttpClient client = new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemes), params);
+		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				long duration = super.getKeepAliveDuration(response, context);
+				return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+			}
+		});
+		return client;
 	}
 	
 	/**
@@ -149,11 +230,168 @@ public class XMLRPCClient extends XMLRPCCommon {
 	 */
 	public void setBasicAuthentication(String username, String password) {
 		((DefaultHttpClient) client).getCredentialsProvider().setCredentials(
-		        new AuthScope(postMethod.getURI().getHost(), postMethod.getURI().getPort(),
+		        new AuthScope(uri.getHost(), uri.getPort(),
 AuthScope.ANY_REALM),
 		        new UsernamePasswordCredentials(username, password));
 	}
 
+	/**
+	 * Adds a header that is sent with every call from now on, e.g. User-Agent.
+	 * @param header name of the header
+	 * @param value its value
+	 */
+	public synchronized void addHeader(String header, String value) {
+		Header[] more = new Header[headers.length + 1];
+		System.arraycopy(headers, 0, more, 0, headers.length);
+		more[headers.length] = new BasicHeader(header, value);
+		headers = more;
+	}
+
+	/**
+	 * Bytes of response bodies read off the network by this client so far, compressed if
+	 * the server compressed them.
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * Bytes of response bodies after decompression, what the parser was given.
+	 */
+	public long getBytesDecoded() {
+		return bytesDecoded.get();
+	}
+
+	/**
+	 * A new POST request to uri carrying the default headers. Every call needs its own,
+	 * requests are not safe to share between threads.
+	 * @param uri where to send it
+	 */
+	protected HttpPost newPost(URI uri) {
+		HttpPost post = new HttpPost(uri);
+		post.setHeaders(headers);
+		return post;
+	}
+
+	/**
+	 * Executes a POST of entity to uri and reads the response. When the response isn't read
+	 * to the end the request is aborted, so its connection is closed instead of going back
+	 * to the pool half read.
+	 * 
+	 * @param uri where to send the call
+	 * @param entity the methodCall body
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @return the result
+	 */
+	protected Object execute(URI uri, HttpEntity entity, IXMLRPCResultReader resultReader) throws XMLRPCException, IOException, XmlPullParserException {
+		HttpPost post = newPost(uri);
+		post.setEntity(entity);
+		return execute(post, resultReader, 0);
+	}
+
+	/**
+	 * Same as above, for a request made by newPost() with its entity set. The request can be
+	 * aborted from another thread meanwhile, and is when it's still running after
+	 * timeoutMillis; that, or the connection or server not answering in time, is thrown as
+	 * XMLRPCTimeoutException.
+	 * 
+	 * @param post the request, used only once
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @param timeoutMillis deadline for the whole call, 0 for none
+	 * @return the result
+	 */
+	protected Object execute(HttpPost post, IXMLRPCResultReader resultReader, long timeoutMillis) throws XMLRPCException, IOException, XmlPullParserException {
+		return execute(post, resultReader, timeoutMillis, null);
+	}
+
+	/**
+	 * Same as above, with the sizes and timings of the call written to stats as it goes.
+	 * 
+	 * @param post the request, used only once
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @param timeoutMillis deadline for the whole call, 0 for none
+	 * @param stats filled in by the call, may be null
+	 * @return the result
+	 */
+	protected Object execute(final HttpPost post, IXMLRPCResultReader resultReader, long timeoutMillis, XMLRPCCallStats stats) throws XMLRPCException, IOException, XmlPullParserException {
+		ScheduledFuture<?> watchdog = null;
+		final boolean[] expired = new boolean[1];
+		if (timeoutMillis > 0) {
+			int timeout = (int) Math.min(timeoutMillis, Integer.MAX_VALUE);
+			HttpParams params = post.getParams();
+			ConnManagerParams.setTimeout(params, timeoutMillis);
+			HttpConnectionParams.setConnectionTimeout(params, timeout);
+			HttpConnectionParams.setSoTimeout(params, timeout);
+			// the ones above only limit each step, this limits all of them together
+			watchdog = getDeadlines().schedule(new Runnable() {
+				public void run() {
+					synchronized (expired) {
+						expired[0] = true;
+					}
+					post.abort();
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		boolean done = false;
+		try {
+			//Log.d(Tag.LOG, "ros HTTP POST");
+			// execute HTTP POST request
+			long start = System.nanoTime();
+			HttpResponse response = client.execute(post);
+			//Log.d(Tag.LOG, "ros HTTP POSTed");
+			if (stats != null) {
+				stats.requestBytes = post.getEntity().getContentLength();
+				stats.exchangeNanos = System.nanoTime() - start;
+			}
+
+			Object result = readResponse(response, resultReader, stats);
+			done = true;
+			return result;
+		} catch (XMLRPCException e) {
+			// faults and bad status codes leave the response consumed
+			done = true;
+			throw e;
+		} catch (IOException e) {
+			if (timeoutMillis > 0 && (e instanceof InterruptedIOException || hasExpired(expired))) {
+				throw new XMLRPCTimeoutException(timeoutMillis, e);
+			}
+			throw e;
+		} catch (XmlPullParserException e) {
+			// an abort halfway through the response can also look like broken XML
+			if (hasExpired(expired)) {
+				throw new XMLRPCTimeoutException(timeoutMillis, e);
+			}
+			throw e;
+		} finally {
+			if (watchdog != null) {
+				watchdog.cancel(false);
+			}
+			if (!done) {
+				post.abort();
+			}
+		}
+	}
+
+	private static boolean hasExpired(boolean[] expired) {
+		synchronized (expired) {
+			return expired[0];
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getDeadlines() {
+		if (deadlines == null) {
+			deadlines = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "XMLRPC-Deadlines");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return deadlines;
+	}
+
 	/**
 	 * Call method with optional parameters. This is general method.
 	 * If you want to call your method with 0-8 parameters, you can use more
@@ -164,42 +402,117 @@ AuthScope.ANY_REALM),
 	 * @return deserialized method return value
 	 * @throws XMLRPCException
 	 */
-	@SuppressWarnings("unchecked")
 	public Object callEx(String method, Object[] params) throws XMLRPCException {
+		return callEx(method, params, null);
+	}
+
+	/**
+	 * Same as above, with the result read by resultReader, e.g. one from
+	 * XMLRPCStructReader.arrayOf() to get array elements as they arrive.
+	 * 
+	 * @param method name of method to call
+	 * @param params parameters to pass to method (may be null if method has no parameters)
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @return the result
+	 * @throws XMLRPCException
+	 */
+	public Object callEx(String method, Object[] params, IXMLRPCResultReader resultReader) throws XMLRPCException {
 		try {
 			// prepare POST body
 			String body = methodCall(method, params);
 
-			// set POST body
-			HttpEntity entity = new StringEntity(body);
-			postMethod.setEntity(entity);
+			return execute(uri, new StringEntity(body, "UTF-8"), resultReader);
+		} catch (XMLRPCException e) {
+			// catch & propagate XMLRPCException/XMLRPCFault
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace();
+			// wrap any other Exception(s) around XMLRPCException
+			throw new XMLRPCException(e);
+		}
+	}
+	
+	/**
+	 * Checks the status of a response and deserializes its methodResponse body.
+	 * Faults are thrown as XMLRPCFault.
+	 * 
+	 * @param response executed HTTP response
+	 * @return deserialized method return value
+	 */
+	protected Object readResponse(HttpResponse response) throws XMLRPCException, IOException, XmlPullParserException {
+		return readResponse(response, null);
+	}
 
-			//Log.d(Tag.LOG, "ros HTTP POST");
-			// execute HTTP POST request
-			HttpResponse response = client.execute(postMethod);
-			//Log.d(Tag.LOG, "ros HTTP POSTed");
+	/**
+	 * Same as above, the result value is read by resultReader if one is given.
+	 * 
+	 * @param response executed HTTP response
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @return the result
+	 */
+	protected Object readResponse(HttpResponse response, IXMLRPCResultReader resultReader) throws XMLRPCException, IOException, XmlPullParserException {
+		return readResponse(response, resultReader, null);
+	}
 
-			// check status code
-			int statusCode = response.getStatusLine().getStatusCode();
-			//Log.d(Tag.LOG, "ros status code:" + statusCode);
-			if (statusCode != HttpStatus.SC_OK) {
-				throw new XMLRPCException("HTTP status code: " + statusCode + " != " + HttpStatus.SC_OK);
+	/**
+	 * Same as above, with the body's sizes and reading time written to stats.
+	 * 
+	 * @param response executed HTTP response
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @param stats filled in while reading, may be null
+	 * @return the result
+	 */
+	protected Object readResponse(HttpResponse response, IXMLRPCResultReader resultReader, XMLRPCCallStats stats) throws XMLRPCException, IOException, XmlPullParserException {
+		long start = System.nanoTime();
+		// check status code
+		int statusCode = response.getStatusLine().getStatusCode();
+		//Log.d(Tag.LOG, "ros status code:" + statusCode);
+		if (statusCode != HttpStatus.SC_OK) {
+			// read the body off so the connection can be reused
+			if (response.getEntity() != null) {
+				response.getEntity().consumeContent();
 			}
+			throw new XMLRPCException("HTTP status code: " + statusCode + " != " + HttpStatus.SC_OK);
+		}
 
-			// parse response stuff
-			//
-			// setup pull parser
-			XmlPullParser pullParser = XmlPullParserFactory.newInstance().newPullParser();
-			entity = response.getEntity();
-			Reader reader = new InputStreamReader(new BufferedInputStream(entity.getContent()));
-// for testing purposes only
-// reader = new StringReader("<?xml version='1.0'?><methodResponse><params><param><value>\n\n\n</value></param></params></methodResponse>");
-			pullParser.setInput(reader);
-			
+		HttpEntity entity = response.getEntity();
+		ResponseStream content = ResponseStream.open(entity);
+		try {
+			Object result;
+			try {
+				result = parseResponse(content, EntityUtils.getContentCharSet(entity), resultReader);
+			} catch (XMLRPCException e) {
+				// faults are answers too, the connection can still be reused
+				consume(entity, content);
+				throw e;
+			}
+			consume(entity, content);
+			return result;
+		} finally {
+			release(content, stats, start);
+		}
+	}
+
+	/**
+	 * Reads the methodResponse in content, which is already decompressed. Subclasses for
+	 * servers answering in another format read that instead.
+	 * 
+	 * @param content the response body
+	 * @param charset its charset, null if the server didn't say
+	 * @param resultReader reads the result in place of the serializer, may be null
+	 * @return the result
+	 */
+	@SuppressWarnings("unchecked")
+	protected Object parseResponse(InputStream content, String charset, IXMLRPCResultReader resultReader) throws XMLRPCException, IOException, XmlPullParserException {
+		// parse response stuff
+		//
+		// setup pull parser
+		XmlPullParser pullParser = obtainParser(content, charset);
+		try {
 			// lets start pulling...
 			pullParser.nextTag();
 			pullParser.require(XmlPullParser.START_TAG, null, Tag.METHOD_RESPONSE);
-			
+
 			pullParser.nextTag(); // either Tag.PARAMS (<params>) or Tag.FAULT (<fault>)  
 			String tag = pullParser.getName();
 			if (tag.equals(Tag.PARAMS)) {
@@ -208,11 +521,11 @@ AuthScope.ANY_REALM),
 				pullParser.require(XmlPullParser.START_TAG, null, Tag.PARAM);
 				pullParser.nextTag(); // Tag.VALUE (<value>)
 				// no parser.require() here since its called in XMLRPCSerializer.deserialize() below
-				
+
 				// deserialize result
-				Object obj = iXMLRPCSerializer.deserialize(pullParser);
-				entity.consumeContent();
-				return obj;
+				return resultReader != null
+					? resultReader.read(pullParser, iXMLRPCSerializer)
+					: iXMLRPCSerializer.deserialize(pullParser);
 			} else
 			if (tag.equals(Tag.FAULT)) {
 				// fault response
@@ -223,24 +536,36 @@ AuthScope.ANY_REALM),
 				Map<String, Object> map = (Map<String, Object>) iXMLRPCSerializer.deserialize(pullParser);
 				String faultString = (String) map.get(Tag.FAULT_STRING);
 				int faultCode = (Integer) map.get(Tag.FAULT_CODE);
-				entity.consumeContent();
 				throw new XMLRPCFault(faultString, faultCode);
 			} else {
-				entity.consumeContent();
 				throw new XMLRPCException("Bad tag <" + tag + "> in XMLRPC response - neither <params> nor <fault>");
 			}
-		} catch (XMLRPCException e) {
-			// catch & propagate XMLRPCException/XMLRPCFault
-			throw e;
-		} catch (Exception e) {
-			e.printStackTrace();
-			// wrap any other Exception(s) around XMLRPCException
-			throw new XMLRPCException(e);
+		} finally {
+			releaseParser(pullParser);
 		}
 	}
-	
+
+	/* Reads what's left of the body, compressed or not, so the connection can be reused. */
+	private static void consume(HttpEntity entity, ResponseStream content) throws IOException {
+		content.drain();
+		entity.consumeContent();
+	}
+
+	private void release(ResponseStream content, XMLRPCCallStats stats, long start) {
+		content.release();
+		bytesReceived.addAndGet(content.getReceived());
+		bytesDecoded.addAndGet(content.getDecoded());
+		if (stats != null) {
+			stats.responseBytes = content.getReceived();
+			stats.decodedBytes = content.getDecoded();
+			stats.readNanos = System.nanoTime() - start;
+		}
+	}
+
 	private String methodCall(String method, Object[] params)
 	throws IllegalArgumentException, IllegalStateException, IOException {
+		// a serializer of its own, calls may be running on other threads
+		XmlSerializer serializer = Xml.newSerializer();
 		StringWriter bodyWriter = new StringWriter();
 		serializer.setOutput(bodyWriter);
 		serializer.startDocument(null, null);
@@ -248,7 +573,7 @@ AuthScope.ANY_REALM),
 		// set method name
 		serializer.startTag(null, Tag.METHOD_NAME).text(method).endTag(null, Tag.METHOD_NAME);
 		
-		serializeParams(params);
+		serializeParams(serializer, params);
 
 		serializer.endTag(null, Tag.METHOD_CALL);
 		serializer.endDocument();
@@ -0,0 +1,232 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.xmlpull.v1.XmlSerializer;
+
+/**
+ * Finds the IXMLRPCCodec for the class of a value. The codec for each concrete class is
+ * resolved once and cached, so serializing a value costs one map lookup instead of a
+ * walk down the instanceof chain.
+ *
+ * <p>
+ * Registered codecs are tried before the built-in ones, in registration order, and apply
+ * to subclasses and implementations of the registered type too.
+ * </p>
+ */
+public final class XMLRPCCodecs {
+
+	/* Registered codecs and the cache resolved from them, replaced as a whole on register(). */
+	private static final class State {
+		final Class<?>[] types;
+		final IXMLRPCCodec<?>[] codecs;
+		final ConcurrentHashMap<Class<?>, IXMLRPCCodec<Object>> resolved =
+			new ConcurrentHashMap<Class<?>, IXMLRPCCodec<Object>>();
+
+		State(Class<?>[] types, IXMLRPCCodec<?>[] codecs) {
+			this.types = types;
+			this.codecs = codecs;
+		}
+	}
+
+	private static volatile State state = new State(new Class<?>[0], new IXMLRPCCodec<?>[0]);
+
+	private XMLRPCCodecs() {
+	}
+
+	/**
+	 * Makes values of type, and of its subclasses, serialize with codec.
+	 */
+	public static synchronized <T> void register(Class<T> type, IXMLRPCCodec<? super T> codec) {
+		State old = state;
+		int n = old.types.length;
+		Class<?>[] types = new Class<?>[n + 1];
+		IXMLRPCCodec<?>[] codecs = new IXMLRPCCodec<?>[n + 1];
+		System.arraycopy(old.types, 0, types, 0, n);
+		System.arraycopy(old.codecs, 0, codecs, 0, n);
+		types[n] = type;
+		codecs[n] = codec;
+		state = new State(types, codecs);
+	}
+
+	/**
+	 * The codec for values of exactly this class. Classes nothing can serialize get a
+	 * codec that throws IOException.
+	 */
+	public static IXMLRPCCodec<Object> forClass(Class<?> type) {
+		State current = state;
+		IXMLRPCCodec<Object> codec = current.resolved.get(type);
+		if (codec == null) {
+			codec = resolve(current, type);
+			current.resolved.put(type, codec);
+		}
+		return codec;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static IXMLRPCCodec<Object> resolve(State current, Class<?> type) {
+		for (int i = 0; i < current.types.length; i++) {
+			if (current.types[i] == type) {
+				return (IXMLRPCCodec<Object>) current.codecs[i];
+			}
+		}
+		for (int i = 0; i < current.types.length; i++) {
+			if (current.types[i].isAssignableFrom(type)) {
+				return (IXMLRPCCodec<Object>) current.codecs[i];
+			}
+		}
+
+		// same order as the instanceof chain this replaces
+		if (type == Integer.class || type == Short.class || type == Byte.class) {
+			return INT;
+		}
+		if (type == Long.class) {
+			return I8;
+		}
+		if (type == Double.class || type == Float.class) {
+			return DOUBLE;
+		}
+		if (type == Boolean.class) {
+			return BOOLEAN;
+		}
+		if (type == String.class) {
+			return STRING;
+		}
+		if (Date.class.isAssignableFrom(type)) {
+			return DATE;
+		}
+		if (Calendar.class.isAssignableFrom(type)) {
+			return CALENDAR;
+		}
+		if (type == byte[].class) {
+			return BASE64;
+		}
+		if (List.class.isAssignableFrom(type)) {
+			return LIST;
+		}
+		if (Object[].class.isAssignableFrom(type)) {
+			return ARRAY;
+		}
+		if (Map.class.isAssignableFrom(type)) {
+			return STRUCT;
+		}
+		if (XMLRPCSerializable.class.isAssignableFrom(type)) {
+			return SERIALIZABLE;
+		}
+		return UNSUPPORTED;
+	}
+
+	private static final IXMLRPCCodec<Object> INT = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_I4).text(value.toString()).endTag(null, IXMLRPCSerializer.TYPE_I4);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> I8 = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_I8).text(value.toString()).endTag(null, IXMLRPCSerializer.TYPE_I8);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> DOUBLE = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_DOUBLE).text(value.toString()).endTag(null, IXMLRPCSerializer.TYPE_DOUBLE);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> BOOLEAN = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			String boolStr = ((Boolean) value).booleanValue() ? "1" : "0";
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_BOOLEAN).text(boolStr).endTag(null, IXMLRPCSerializer.TYPE_BOOLEAN);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> STRING = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_STRING).text((String) value).endTag(null, IXMLRPCSerializer.TYPE_STRING);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> DATE = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			String dateStr = XMLRPCDates.format((Date) value);
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_DATE_TIME_ISO8601).text(dateStr).endTag(null, IXMLRPCSerializer.TYPE_DATE_TIME_ISO8601);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> CALENDAR = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			String dateStr = XMLRPCDates.format((Calendar) value);
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_DATE_TIME_ISO8601).text(dateStr).endTag(null, IXMLRPCSerializer.TYPE_DATE_TIME_ISO8601);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> BASE64 = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			char[] encoded = Base64Coder.encode((byte[]) value);
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_BASE64).text(encoded, 0, encoded.length).endTag(null, IXMLRPCSerializer.TYPE_BASE64);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> LIST = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_ARRAY).startTag(null, IXMLRPCSerializer.TAG_DATA);
+			Iterator<?> iter = ((List<?>) value).iterator();
+			while (iter.hasNext()) {
+				serializer.startTag(null, IXMLRPCSerializer.TAG_VALUE);
+				nested.serialize(serializer, iter.next());
+				serializer.endTag(null, IXMLRPCSerializer.TAG_VALUE);
+			}
+			serializer.endTag(null, IXMLRPCSerializer.TAG_DATA).endTag(null, IXMLRPCSerializer.TYPE_ARRAY);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> ARRAY = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_ARRAY).startTag(null, IXMLRPCSerializer.TAG_DATA);
+			Object[] objects = (Object[]) value;
+			for (int i = 0; i < objects.length; i++) {
+				serializer.startTag(null, IXMLRPCSerializer.TAG_VALUE);
+				nested.serialize(serializer, objects[i]);
+				serializer.endTag(null, IXMLRPCSerializer.TAG_VALUE);
+			}
+			serializer.endTag(null, IXMLRPCSerializer.TAG_DATA).endTag(null, IXMLRPCSerializer.TYPE_ARRAY);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> STRUCT = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			serializer.startTag(null, IXMLRPCSerializer.TYPE_STRUCT);
+			Iterator<? extends Entry<?, ?>> iter = ((Map<?, ?>) value).entrySet().iterator();
+			while (iter.hasNext()) {
+				Entry<?, ?> entry = iter.next();
+				serializer.startTag(null, IXMLRPCSerializer.TAG_MEMBER);
+				serializer.startTag(null, IXMLRPCSerializer.TAG_NAME).text((String) entry.getKey()).endTag(null, IXMLRPCSerializer.TAG_NAME);
+				serializer.startTag(null, IXMLRPCSerializer.TAG_VALUE);
+				nested.serialize(serializer, entry.getValue());
+				serializer.endTag(null, IXMLRPCSerializer.TAG_VALUE);
+				serializer.endTag(null, IXMLRPCSerializer.TAG_MEMBER);
+			}
+			serializer.endTag(null, IXMLRPCSerializer.TYPE_STRUCT);
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> SERIALIZABLE = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			nested.serialize(serializer, ((XMLRPCSerializable) value).getSerializable());
+		}
+	};
+
+	private static final IXMLRPCCodec<Object> UNSUPPORTED = new IXMLRPCCodec<Object>() {
+		public void serialize(XmlSerializer serializer, Object value, IXMLRPCSerializer nested) throws IOException {
+			throw new IOException("Cannot serialize " + value);
+		}
+	};
+}
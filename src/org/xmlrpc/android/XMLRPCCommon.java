@@ -1,13 +1,36 @@
 package org.xmlrpc.android;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
 
 import android.util.Xml;
 
 class XMLRPCCommon {
 
+	// looking the factory up goes through service discovery, do that once
+	private static XmlPullParserFactory parserFactory;
+
+	/* One parser per thread, handed out again for every response on that thread.  A thread
+	 * only ever parses one response at a time unless a caller starts another call while
+	 * still reading, in which case that call gets a parser of its own. */
+	private static final class ParserSlot {
+		XmlPullParser parser;
+		Class<?> provider; // class of the IXMLRPCParserProvider that made it, null for the platform's
+		boolean inUse;
+	}
+	private static final ThreadLocal<ParserSlot> parsers = new ThreadLocal<ParserSlot>() {
+		@Override
+		protected ParserSlot initialValue() {
+			return new ParserSlot();
+		}
+	};
+
 	protected XmlSerializer serializer;
 	protected IXMLRPCSerializer iXMLRPCSerializer;
 	
@@ -26,7 +49,86 @@ class XMLRPCCommon {
 		iXMLRPCSerializer = serializer;
 	}
 			
+	protected static synchronized XmlPullParserFactory getParserFactory() throws XmlPullParserException {
+		if (parserFactory == null) {
+			parserFactory = XmlPullParserFactory.newInstance();
+		}
+		return parserFactory;
+	}
+
+	/**
+	 * Returns a parser reading the given stream, reusing this thread's parser when it is free.
+	 * The parser comes from the serializer if it is an IXMLRPCParserProvider, from the
+	 * platform otherwise. Give it back with releaseParser() when done.
+	 * 
+	 * @param in response body
+	 * @param encoding charset of the body, UTF-8 if null
+	 */
+	protected XmlPullParser obtainParser(InputStream in, String encoding) throws XmlPullParserException {
+		if (encoding == null) {
+			encoding = "UTF-8";
+		}
+		IXMLRPCParserProvider provider = iXMLRPCSerializer instanceof IXMLRPCParserProvider
+			? (IXMLRPCParserProvider) iXMLRPCSerializer : null;
+
+		if (provider != null) {
+			XmlPullParser parser = obtainParser(provider);
+			try {
+				parser.setInput(in, encoding);
+				return parser;
+			} catch (XmlPullParserException e) {
+				// e.g. a charset it can't read, the platform parser takes those
+				releaseParser(parser);
+			}
+		}
+
+		XmlPullParser parser = obtainParser(null);
+		try {
+			parser.setInput(in, encoding);
+		} catch (XmlPullParserException e) {
+			releaseParser(parser);
+			throw e;
+		}
+		return parser;
+	}
+
+	private static XmlPullParser obtainParser(IXMLRPCParserProvider provider) throws XmlPullParserException {
+		ParserSlot slot = parsers.get();
+		Class<?> source = provider != null ? provider.getClass() : null;
+		if (slot.inUse) {
+			return newPullParser(provider);
+		}
+		if (slot.parser == null || slot.provider != source) {
+			slot.parser = newPullParser(provider);
+			slot.provider = source;
+		}
+		slot.inUse = true;
+		return slot.parser;
+	}
+
+	private static XmlPullParser newPullParser(IXMLRPCParserProvider provider) throws XmlPullParserException {
+		return provider != null ? provider.newPullParser() : getParserFactory().newPullParser();
+	}
+
+	protected static void releaseParser(XmlPullParser parser) {
+		ParserSlot slot = parsers.get();
+		if (slot.parser == parser) {
+			try {
+				// drop the reference to the stream, the parser may sit idle for a while
+				parser.setInput((Reader) null);
+			} catch (XmlPullParserException e) {
+				// nothing was being read anyway, just don't reuse this one
+				slot.parser = null;
+			}
+			slot.inUse = false;
+		}
+	}
+
 	protected void serializeParams(Object[] params) throws IllegalArgumentException, IllegalStateException, IOException {
+		serializeParams(serializer, params);
+	}
+
+	protected void serializeParams(XmlSerializer serializer, Object[] params) throws IllegalArgumentException, IllegalStateException, IOException {
 		if (params != null && params.length != 0)
 		{
 			// set method params
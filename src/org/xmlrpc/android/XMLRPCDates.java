@@ -0,0 +1,98 @@
+package org.xmlrpc.android;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * dateTime.iso8601 values in the IXMLRPCSerializer.DATETIME_FORMAT layout
+ * (yyyyMMdd'T'HH:mm:ss), local time. Unlike a shared SimpleDateFormat this is safe to use
+ * from any thread; each thread keeps one Calendar and nothing else is allocated beyond
+ * the result.
+ */
+public final class XMLRPCDates {
+
+	private static final int LENGTH = 17;
+
+	private static final ThreadLocal<Calendar> calendars = new ThreadLocal<Calendar>() {
+		@Override
+		protected Calendar initialValue() {
+			return Calendar.getInstance();
+		}
+	};
+
+	private XMLRPCDates() {
+	}
+
+	public static String format(Date date) {
+		Calendar calendar = calendars.get();
+		calendar.setTime(date);
+		return format(calendar);
+	}
+
+	/**
+	 * Formats the calendar's own fields, in its own time zone.
+	 */
+	public static String format(Calendar calendar) {
+		char[] out = new char[LENGTH];
+		digits(out, 0, 4, calendar.get(Calendar.YEAR));
+		digits(out, 4, 2, calendar.get(Calendar.MONTH) + 1);
+		digits(out, 6, 2, calendar.get(Calendar.DAY_OF_MONTH));
+		out[8] = 'T';
+		digits(out, 9, 2, calendar.get(Calendar.HOUR_OF_DAY));
+		out[11] = ':';
+		digits(out, 12, 2, calendar.get(Calendar.MINUTE));
+		out[14] = ':';
+		digits(out, 15, 2, calendar.get(Calendar.SECOND));
+		return new String(out);
+	}
+
+	public static Date parse(String text) throws ParseException {
+		return parse(text.toCharArray(), 0, text.length());
+	}
+
+	/**
+	 * Parses buf[offset..offset+length). Anything after the seconds, like a zone
+	 * designator, is ignored, as SimpleDateFormat did.
+	 */
+	public static Date parse(char[] buf, int offset, int length) throws ParseException {
+		if (length < LENGTH || buf[offset + 8] != 'T'
+				|| buf[offset + 11] != ':' || buf[offset + 14] != ':') {
+			throw new ParseException("Unparseable date: " + new String(buf, offset, length), 0);
+		}
+		int year = number(buf, offset, 4);
+		int month = number(buf, offset + 4, 2);
+		int day = number(buf, offset + 6, 2);
+		int hour = number(buf, offset + 9, 2);
+		int minute = number(buf, offset + 12, 2);
+		int second = number(buf, offset + 15, 2);
+		if ((year | month | day | hour | minute | second) < 0) {
+			throw new ParseException("Unparseable date: " + new String(buf, offset, length), 0);
+		}
+
+		Calendar calendar = calendars.get();
+		calendar.clear();
+		calendar.set(year, month - 1, day, hour, minute, second);
+		return calendar.getTime();
+	}
+
+	/* The digits at buf[offset..offset+count) as a number, or -1. */
+	private static int number(char[] buf, int offset, int count) {
+		int result = 0;
+		for (int i = offset; i < offset + count; i++) {
+			int digit = buf[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	private static void digits(char[] out, int offset, int count, int value) {
+		for (int i = offset + count - 1; i >= offset; i--) {
+			out[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
@@ -14,4 +14,8 @@ public class XMLRPCException extends Exception {
 	public XMLRPCException(String string) {
 		super(string);
 	}
+
+	public XMLRPCException(String string, Exception e) {
+		super(string, e);
+	}
 }
@@ -0,0 +1,113 @@
+package org.xmlrpc.android;
+
+/**
+ * Intern table for struct member names, so that every struct of a response shares one
+ * String per name instead of carrying its own copies. Names can be looked up straight
+ * from a char buffer, which costs no allocation at all for names that are already known.
+ *
+ * <p>
+ * The table is bounded: once it is full, unknown names are returned as new strings
+ * without being added, so servers sending arbitrary keys can't grow it forever.
+ * Applications can seed it with the names they expect with register().
+ * </p>
+ */
+public final class XMLRPCMemberNames {
+
+	private static final int SLOTS = 2048; // power of two
+	private static final int MAX_NAMES = SLOTS / 2;
+	private static final int MAX_LENGTH = 64;
+
+	// written under the class lock, read without it; a reader that misses a
+	// name being added only ends up with a copy of its own
+	private static final String[] table = new String[SLOTS];
+	private static int count;
+
+	static {
+		register(Tag.FAULT_CODE, Tag.FAULT_STRING);
+	}
+
+	private XMLRPCMemberNames() {
+	}
+
+	/**
+	 * Adds names to the table ahead of time.
+	 */
+	public static synchronized void register(String... names) {
+		for (int i = 0; i < names.length; i++) {
+			add(names[i]);
+		}
+	}
+
+	/**
+	 * The shared instance of the given name.
+	 */
+	public static String intern(String name) {
+		int length = name.length();
+		if (length > MAX_LENGTH) {
+			return name;
+		}
+		int hash = name.hashCode();
+		for (int slot = hash & (SLOTS - 1); ; slot = (slot + 1) & (SLOTS - 1)) {
+			String known = table[slot];
+			if (known == null) {
+				break;
+			}
+			if (known.hashCode() == hash && known.equals(name)) {
+				return known;
+			}
+		}
+		return tryAdd(name);
+	}
+
+	/**
+	 * The shared instance of the name in buf[offset..offset+length).
+	 */
+	public static String intern(char[] buf, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(buf, offset, length);
+		}
+		// same hash as String.hashCode(), so both lookups agree on the slot
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + buf[offset + i];
+		}
+		probe:
+		for (int slot = hash & (SLOTS - 1); ; slot = (slot + 1) & (SLOTS - 1)) {
+			String known = table[slot];
+			if (known == null) {
+				break;
+			}
+			if (known.length() != length || known.hashCode() != hash) {
+				continue;
+			}
+			for (int i = 0; i < length; i++) {
+				if (known.charAt(i) != buf[offset + i]) {
+					continue probe;
+				}
+			}
+			return known;
+		}
+		return tryAdd(new String(buf, offset, length));
+	}
+
+	private static synchronized String tryAdd(String name) {
+		return count < MAX_NAMES ? add(name) : name;
+	}
+
+	/* Adds name unless it's there already, returns the table's instance. */
+	private static String add(String name) {
+		int hash = name.hashCode();
+		int slot = hash & (SLOTS - 1);
+		for (; table[slot] != null; slot = (slot + 1) & (SLOTS - 1)) {
+			if (table[slot].equals(name)) {
+				return table[slot];
+			}
+		}
+		if (count >= MAX_NAMES) {
+			return name;
+		}
+		table[slot] = name;
+		count++;
+		return name;
+	}
+}
@@ -0,0 +1,662 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * A pull parser for the little XML that XML-RPC uses. It reads UTF-8 (or ASCII) bytes
+ * straight from the stream into a reused buffer, decodes text and entities into a reused
+ * char buffer, and reports the XML-RPC element names as the constant strings from Tag
+ * and IXMLRPCSerializer, so tags cost no allocation and the names compare by identity.
+ *
+ * <p>
+ * Namespaces, attributes and DTDs are not supported: attributes are skipped, as are
+ * comments, processing instructions and doctype declarations. CDATA sections are read
+ * as text.
+ * </p>
+ */
+public final class XMLRPCScanner implements XmlPullParser {
+
+	private static final String[] NAMES = {
+		Tag.METHOD_RESPONSE, Tag.PARAMS, Tag.PARAM, Tag.FAULT, Tag.METHOD_CALL, Tag.METHOD_NAME,
+		IXMLRPCSerializer.TAG_VALUE, IXMLRPCSerializer.TAG_MEMBER, IXMLRPCSerializer.TAG_NAME,
+		IXMLRPCSerializer.TAG_DATA, IXMLRPCSerializer.TYPE_STRING, IXMLRPCSerializer.TYPE_INT,
+		IXMLRPCSerializer.TYPE_I4, IXMLRPCSerializer.TYPE_I8, IXMLRPCSerializer.TYPE_DOUBLE,
+		IXMLRPCSerializer.TYPE_BOOLEAN, IXMLRPCSerializer.TYPE_STRUCT, IXMLRPCSerializer.TYPE_ARRAY,
+		IXMLRPCSerializer.TYPE_DATE_TIME_ISO8601, IXMLRPCSerializer.TYPE_BASE64,
+	};
+	private static final byte[][] NAME_BYTES = new byte[NAMES.length][];
+	static {
+		for (int i = 0; i < NAMES.length; i++) {
+			String name = NAMES[i];
+			NAME_BYTES[i] = new byte[name.length()];
+			for (int j = 0; j < name.length(); j++) {
+				NAME_BYTES[i][j] = (byte) name.charAt(j);
+			}
+		}
+	}
+
+	private InputStream in;
+	private final byte[] buf = new byte[8192];
+	private int pos;
+	private int limit;
+	private long consumed; // bytes dropped from the front of buf, for error positions
+	private boolean eof;
+
+	private int eventType = START_DOCUMENT;
+	private String name;
+	private boolean emptyElement;
+	private boolean endPending; // the END_TAG half of <x/> is next
+	private boolean popPending; // depth goes down before the next event
+	private int depth;
+	private String[] elements = new String[16];
+
+	private char[] text = new char[256];
+	private int textLength;
+	private boolean whitespace;
+
+	private byte[] nameBuf = new byte[32];
+
+	public void setInput(InputStream inputStream, String inputEncoding) throws XmlPullParserException {
+		if (inputStream == null) {
+			throw new IllegalArgumentException("input stream may not be null");
+		}
+		if (inputEncoding != null && !inputEncoding.equalsIgnoreCase("UTF-8")
+				&& !inputEncoding.equalsIgnoreCase("US-ASCII")) {
+			throw new XmlPullParserException("unsupported encoding " + inputEncoding);
+		}
+		reset(inputStream);
+	}
+
+	/** Only null is accepted, to let go of the last stream. */
+	public void setInput(Reader reader) throws XmlPullParserException {
+		if (reader != null) {
+			throw new XmlPullParserException("XMLRPCScanner only reads UTF-8 byte streams");
+		}
+		reset(null);
+	}
+
+	private void reset(InputStream inputStream) {
+		in = inputStream;
+		pos = limit = 0;
+		consumed = 0;
+		eof = false;
+		eventType = START_DOCUMENT;
+		name = null;
+		emptyElement = endPending = popPending = false;
+		depth = 0;
+		textLength = 0;
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = null;
+		}
+	}
+
+	public int next() throws XmlPullParserException, IOException {
+		if (popPending) {
+			elements[--depth] = null;
+			popPending = false;
+		}
+		if (endPending) {
+			endPending = false;
+			emptyElement = false;
+			popPending = true;
+			return eventType = END_TAG;
+		}
+		emptyElement = false;
+
+		if (readText()) {
+			name = null;
+			return eventType = TEXT;
+		}
+		if (!ensure(1)) {
+			if (depth > 0) {
+				throw new XmlPullParserException("unexpected end of document, <" + elements[depth-1] + "> is still open", this, null);
+			}
+			name = null;
+			return eventType = END_DOCUMENT;
+		}
+
+		// readText() stopped on the '<' of a tag
+		pos++;
+		if (!ensure(1)) {
+			throw new XmlPullParserException("unexpected end of document in tag", this, null);
+		}
+		if (buf[pos] == '/') {
+			pos++;
+			name = readName();
+			skipWhitespace();
+			expect('>');
+			// known names are the same instance, equals() only does real work for others
+			if (depth == 0 || !name.equals(elements[depth-1])) {
+				throw new XmlPullParserException("</" + name + "> does not close <" + (depth > 0 ? elements[depth-1] : "") + ">", this, null);
+			}
+			popPending = true;
+			return eventType = END_TAG;
+		}
+
+		name = readName();
+		emptyElement = skipAttributes();
+		if (depth == elements.length) {
+			String[] larger = new String[depth * 2];
+			System.arraycopy(elements, 0, larger, 0, depth);
+			elements = larger;
+		}
+		elements[depth++] = name;
+		endPending = emptyElement;
+		return eventType = START_TAG;
+	}
+
+	public int nextToken() throws XmlPullParserException, IOException {
+		return next();
+	}
+
+	public int nextTag() throws XmlPullParserException, IOException {
+		next();
+		if (eventType == TEXT && whitespace) {
+			next();
+		}
+		if (eventType != START_TAG && eventType != END_TAG) {
+			throw new XmlPullParserException("expected start or end tag", this, null);
+		}
+		return eventType;
+	}
+
+	public String nextText() throws XmlPullParserException, IOException {
+		if (eventType != START_TAG) {
+			throw new XmlPullParserException("parser must be on START_TAG to read next text", this, null);
+		}
+		int event = next();
+		if (event == TEXT) {
+			String result = getText();
+			if (next() != END_TAG) {
+				throw new XmlPullParserException("END_TAG expected after text", this, null);
+			}
+			return result;
+		} else if (event == END_TAG) {
+			return "";
+		}
+		throw new XmlPullParserException("parser must be on START_TAG or TEXT to read text", this, null);
+	}
+
+	/**
+	 * nextText() for struct member names: the name comes from XMLRPCMemberNames, without
+	 * creating a string when it is a known one.
+	 */
+	public String nextName() throws XmlPullParserException, IOException {
+		if (eventType != START_TAG) {
+			throw new XmlPullParserException("parser must be on START_TAG to read next text", this, null);
+		}
+		if (next() == END_TAG) {
+			return "";
+		}
+		if (eventType != TEXT) {
+			throw new XmlPullParserException("parser must be on START_TAG or TEXT to read text", this, null);
+		}
+		String result = XMLRPCMemberNames.intern(text, 0, textLength);
+		if (next() != END_TAG) {
+			throw new XmlPullParserException("END_TAG expected after text", this, null);
+		}
+		return result;
+	}
+
+	public void require(int type, String namespace, String name) throws XmlPullParserException, IOException {
+		if (type != eventType
+				|| (namespace != null && namespace.length() != 0)
+				|| (name != null && !name.equals(getName()))) {
+			throw new XmlPullParserException("expected " + TYPES[type] + (name != null ? " <" + name + ">" : ""), this, null);
+		}
+	}
+
+	/*
+	 * Collects character data up to the next tag, skipping comments and processing
+	 * instructions and taking CDATA sections as text. Returns whether there was any.
+	 */
+	private boolean readText() throws XmlPullParserException, IOException {
+		textLength = 0;
+		whitespace = true;
+		boolean any = false;
+		while (ensure(1)) {
+			int b = buf[pos];
+			if (b == '<') {
+				if (!ensure(2)) {
+					throw new XmlPullParserException("unexpected end of document in tag", this, null);
+				}
+				int c = buf[pos+1];
+				if (c == '?') {
+					pos += 2;
+					skipPast('?', '>');
+				} else if (c == '!') {
+					if (startsWith("<!--")) {
+						pos += 4;
+						skipPast('-', '-');
+						expect('>');
+					} else if (startsWith("<![CDATA[")) {
+						pos += 9;
+						readCData();
+						any = true;
+					} else {
+						// doctype, no internal subsets
+						pos += 2;
+						skipPast('>', (char) 0);
+					}
+				} else {
+					return any;
+				}
+			} else {
+				pos++;
+				if (b == '&') {
+					appendChar(readEntity());
+				} else if (b >= 0) {
+					if (b == '\r') {
+						// \r\n and lone \r both become \n
+						if (ensure(1) && buf[pos] == '\n') {
+							pos++;
+						}
+						b = '\n';
+					}
+					appendChar((char) b);
+				} else {
+					readMultiByte(b & 0xff);
+				}
+				any = true;
+			}
+		}
+		return any;
+	}
+
+	private void readCData() throws XmlPullParserException, IOException {
+		while (true) {
+			if (!ensure(3)) {
+				throw new XmlPullParserException("unexpected end of document in CDATA", this, null);
+			}
+			int b = buf[pos];
+			if (b == ']' && buf[pos+1] == ']' && buf[pos+2] == '>') {
+				pos += 3;
+				return;
+			}
+			pos++;
+			if (b >= 0) {
+				appendChar((char) b);
+			} else {
+				readMultiByte(b & 0xff);
+			}
+		}
+	}
+
+	private void readMultiByte(int lead) throws IOException {
+		int extra;
+		int cp;
+		if (lead >= 0xf0 && lead < 0xf8) {
+			extra = 3;
+			cp = lead & 0x07;
+		} else if (lead >= 0xe0) {
+			extra = 2;
+			cp = lead & 0x0f;
+		} else if (lead >= 0xc0) {
+			extra = 1;
+			cp = lead & 0x1f;
+		} else {
+			appendChar('\ufffd');
+			return;
+		}
+		if (!ensure(extra)) {
+			pos = limit;
+			appendChar('\ufffd');
+			return;
+		}
+		for (int i = 0; i < extra; i++) {
+			int b = buf[pos];
+			if ((b & 0xc0) != 0x80) {
+				appendChar('\ufffd');
+				return;
+			}
+			pos++;
+			cp = (cp << 6) | (b & 0x3f);
+		}
+		if (cp >= 0x10000) {
+			cp -= 0x10000;
+			appendChar((char) (0xd800 | (cp >> 10)));
+			appendChar((char) (0xdc00 | (cp & 0x3ff)));
+		} else {
+			appendChar((char) cp);
+		}
+	}
+
+	private char readEntity() throws XmlPullParserException, IOException {
+		// entity names are short, have the whole reference in buf before looking at it
+		int length = 0;
+		while (true) {
+			if (length > 10 || !ensure(length + 1)) {
+				throw new XmlPullParserException("unterminated entity reference", this, null);
+			}
+			if (buf[pos + length] == ';') {
+				break;
+			}
+			length++;
+		}
+		int start = pos;
+		pos += length;
+		pos++;
+		byte b0 = buf[start];
+		if (b0 == '#') {
+			int radix = 10;
+			int i = start + 1;
+			if (i < start + length && (buf[i] == 'x' || buf[i] == 'X')) {
+				radix = 16;
+				i++;
+			}
+			int cp = 0;
+			for (; i < start + length; i++) {
+				int digit = Character.digit((char) buf[i], radix);
+				if (digit < 0) {
+					throw new XmlPullParserException("bad character reference", this, null);
+				}
+				cp = cp * radix + digit;
+			}
+			if (cp >= 0x10000) {
+				cp -= 0x10000;
+				appendChar((char) (0xd800 | (cp >> 10)));
+				return (char) (0xdc00 | (cp & 0x3ff));
+			}
+			return (char) cp;
+		}
+		if (length == 3 && b0 == 'a' && buf[start+1] == 'm' && buf[start+2] == 'p') return '&';
+		if (length == 2 && b0 == 'l' && buf[start+1] == 't') return '<';
+		if (length == 2 && b0 == 'g' && buf[start+1] == 't') return '>';
+		if (length == 4 && b0 == 'q' && buf[start+1] == 'u' && buf[start+2] == 'o' && buf[start+3] == 't') return '"';
+		if (length == 4 && b0 == 'a' && buf[start+1] == 'p' && buf[start+2] == 'o' && buf[start+3] == 's') return '\'';
+		throw new XmlPullParserException("unknown entity reference", this, null);
+	}
+
+	private void appendChar(char c) {
+		if (textLength == text.length) {
+			char[] larger = new char[text.length * 2];
+			System.arraycopy(text, 0, larger, 0, textLength);
+			text = larger;
+		}
+		text[textLength++] = c;
+		if (c != ' ' && c != '\n' && c != '\t' && c != '\r') {
+			whitespace = false;
+		}
+	}
+
+	/* Reads an element name and returns the constant for it when it is one of ours. */
+	private String readName() throws XmlPullParserException, IOException {
+		int length = 0;
+		while (true) {
+			if (!ensure(1)) {
+				throw new XmlPullParserException("unexpected end of document in tag", this, null);
+			}
+			byte b = buf[pos];
+			if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+				break;
+			}
+			if (length == nameBuf.length) {
+				byte[] larger = new byte[length * 2];
+				System.arraycopy(nameBuf, 0, larger, 0, length);
+				nameBuf = larger;
+			}
+			nameBuf[length++] = b;
+			pos++;
+		}
+		if (length == 0) {
+			throw new XmlPullParserException("missing element name", this, null);
+		}
+
+		next:
+		for (int i = 0; i < NAME_BYTES.length; i++) {
+			byte[] known = NAME_BYTES[i];
+			if (known.length != length) {
+				continue;
+			}
+			for (int j = 0; j < length; j++) {
+				if (known[j] != nameBuf[j]) {
+					continue next;
+				}
+			}
+			return NAMES[i];
+		}
+		try {
+			return new String(nameBuf, 0, length, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every VM is required to support UTF-8
+			throw new RuntimeException(e);
+		}
+	}
+
+	/* Steps over any attributes, returns whether the tag was closed with "/>". */
+	private boolean skipAttributes() throws XmlPullParserException, IOException {
+		while (true) {
+			if (!ensure(1)) {
+				throw new XmlPullParserException("unexpected end of document in tag", this, null);
+			}
+			byte b = buf[pos++];
+			if (b == '>') {
+				return false;
+			} else if (b == '/') {
+				expect('>');
+				return true;
+			} else if (b == '"' || b == '\'') {
+				skipPast((char) b, (char) 0);
+			}
+		}
+	}
+
+	private void skipWhitespace() throws IOException {
+		while (ensure(1)) {
+			byte b = buf[pos];
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private void expect(char c) throws XmlPullParserException, IOException {
+		if (!ensure(1) || buf[pos] != c) {
+			throw new XmlPullParserException("expected '" + c + "'", this, null);
+		}
+		pos++;
+	}
+
+	/* Skips past the next occurrence of c1, or of c1 c2 when c2 isn't 0. */
+	private void skipPast(char c1, char c2) throws XmlPullParserException, IOException {
+		while (true) {
+			if (!ensure(c2 == 0 ? 1 : 2)) {
+				throw new XmlPullParserException("unexpected end of document", this, null);
+			}
+			if (buf[pos] == c1 && (c2 == 0 || buf[pos+1] == c2)) {
+				pos += c2 == 0 ? 1 : 2;
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private boolean startsWith(String s) throws IOException {
+		if (!ensure(s.length())) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (buf[pos+i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Makes sure n unread bytes are in buf, false if the stream ends first. */
+	private boolean ensure(int n) throws IOException {
+		if (limit - pos >= n) {
+			return true;
+		}
+		if (eof || in == null) {
+			return false;
+		}
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			consumed += pos;
+			limit -= pos;
+			pos = 0;
+		}
+		while (limit < n) {
+			int read = in.read(buf, limit, buf.length - limit);
+			if (read < 0) {
+				eof = true;
+				return false;
+			}
+			limit += read;
+		}
+		return true;
+	}
+
+	public int getEventType() {
+		return eventType;
+	}
+
+	public String getName() {
+		return eventType == START_TAG || eventType == END_TAG ? name : null;
+	}
+
+	public String getText() {
+		return eventType == TEXT ? new String(text, 0, textLength) : null;
+	}
+
+	/** The text without copying it, valid until the next event. */
+	public char[] getTextCharacters(int[] holderForStartAndLength) {
+		if (eventType == TEXT) {
+			holderForStartAndLength[0] = 0;
+			holderForStartAndLength[1] = textLength;
+			return text;
+		}
+		holderForStartAndLength[0] = -1;
+		holderForStartAndLength[1] = -1;
+		return null;
+	}
+
+	/* The last text read, from 0 to textLength().  Kept through the end tag that follows. */
+	char[] textBuffer() {
+		return text;
+	}
+
+	int textLength() {
+		return textLength;
+	}
+
+	public boolean isWhitespace() throws XmlPullParserException {
+		if (eventType != TEXT) {
+			throw new XmlPullParserException("no text to check", this, null);
+		}
+		return whitespace;
+	}
+
+	public boolean isEmptyElementTag() throws XmlPullParserException {
+		if (eventType != START_TAG) {
+			throw new XmlPullParserException("not on a start tag", this, null);
+		}
+		return emptyElement;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public String getPositionDescription() {
+		return TYPES[eventType] + (name != null ? " <" + name + ">" : "") + " at byte " + (consumed + pos);
+	}
+
+	public int getLineNumber() {
+		return -1;
+	}
+
+	public int getColumnNumber() {
+		return -1;
+	}
+
+	public String getInputEncoding() {
+		return "UTF-8";
+	}
+
+	public String getNamespace() {
+		return eventType == START_TAG || eventType == END_TAG ? NO_NAMESPACE : null;
+	}
+
+	public String getPrefix() {
+		return null;
+	}
+
+	public int getAttributeCount() {
+		return eventType == START_TAG ? 0 : -1;
+	}
+
+	public String getAttributeNamespace(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public String getAttributeName(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public String getAttributePrefix(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public String getAttributeType(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public boolean isAttributeDefault(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public String getAttributeValue(int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	public String getAttributeValue(String namespace, String name) {
+		return null;
+	}
+
+	public int getNamespaceCount(int depth) throws XmlPullParserException {
+		return 0;
+	}
+
+	public String getNamespacePrefix(int pos) throws XmlPullParserException {
+		throw new XmlPullParserException("namespaces are not supported");
+	}
+
+	public String getNamespaceUri(int pos) throws XmlPullParserException {
+		throw new XmlPullParserException("namespaces are not supported");
+	}
+
+	public String getNamespace(String prefix) {
+		return null;
+	}
+
+	public void defineEntityReplacementText(String entityName, String replacementText) throws XmlPullParserException {
+		throw new XmlPullParserException("entity definitions are not supported");
+	}
+
+	public void setFeature(String name, boolean state) throws XmlPullParserException {
+		if (state) {
+			throw new XmlPullParserException("unsupported feature " + name);
+		}
+	}
+
+	public boolean getFeature(String name) {
+		return false;
+	}
+
+	public void setProperty(String name, Object value) throws XmlPullParserException {
+		throw new XmlPullParserException("unsupported property " + name);
+	}
+
+	public Object getProperty(String name) {
+		return null;
+	}
+}
@@ -0,0 +1,183 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * The standard serializer, but responses are parsed with XMLRPCScanner. Set it with
+ * setSerializer() to use it. Values deserialize to the same objects as with the standard
+ * serializer; element names are compared by identity and int, i8 and boolean values are
+ * read straight from the scanner's text buffer without creating strings.
+ */
+public class XMLRPCScanningSerializer extends XMLRPCSerializer implements IXMLRPCParserProvider {
+
+	public XmlPullParser newPullParser() {
+		return new XMLRPCScanner();
+	}
+
+	@Override
+	public Object deserialize(XmlPullParser parser) throws XmlPullParserException, IOException {
+		if (parser instanceof XMLRPCScanner) {
+			return deserialize((XMLRPCScanner) parser);
+		}
+		return super.deserialize(parser);
+	}
+
+	private Object deserialize(XMLRPCScanner parser) throws XmlPullParserException, IOException {
+		parser.require(XmlPullParser.START_TAG, null, TAG_VALUE);
+
+		int event = parser.next();
+		if (event == XmlPullParser.TEXT) {
+			if (!parser.isWhitespace()) {
+				// TYPE_STRING (<string>) is not required
+				String text = parser.getText();
+				parser.next();
+				parser.require(XmlPullParser.END_TAG, null, TAG_VALUE);
+				return text;
+			}
+			event = parser.next();
+		}
+		if (event == XmlPullParser.END_TAG) {
+			// empty <value></value> or <value />, return empty string
+			parser.require(XmlPullParser.END_TAG, null, TAG_VALUE);
+			return "";
+		}
+
+		Object obj;
+		String type = parser.getName();
+		if (type == TYPE_STRING) {
+			obj = parser.nextText();
+		} else
+		if (type == TYPE_INT || type == TYPE_I4) {
+			long value = readLong(parser);
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("int out of range: " + value);
+			}
+			obj = Integer.valueOf((int) value);
+		} else
+		if (type == TYPE_I8) {
+			obj = Long.valueOf(readLong(parser));
+		} else
+		if (type == TYPE_BOOLEAN) {
+			int length = readChars(parser);
+			obj = length == 1 && parser.textBuffer()[0] == '1' ? Boolean.TRUE : Boolean.FALSE;
+		} else
+		if (type == TYPE_DOUBLE) {
+			obj = Double.parseDouble(parser.nextText());
+		} else
+		if (type == TYPE_ARRAY) {
+			parser.nextTag(); // TAG_DATA (<data>)
+			parser.require(XmlPullParser.START_TAG, null, TAG_DATA);
+
+			parser.nextTag();
+			List<Object> list = new ArrayList<Object>();
+			while (parser.getEventType() == XmlPullParser.START_TAG && parser.getName() == TAG_VALUE) {
+				list.add(deserialize(parser));
+				parser.nextTag();
+			}
+			parser.require(XmlPullParser.END_TAG, null, TAG_DATA);
+			parser.nextTag(); // TAG_ARRAY (</array>)
+			parser.require(XmlPullParser.END_TAG, null, TYPE_ARRAY);
+			obj = list.toArray();
+		} else
+		if (type == TYPE_STRUCT) {
+			parser.nextTag();
+			XMLRPCStruct.Builder struct = new XMLRPCStruct.Builder();
+			while (parser.getEventType() == XmlPullParser.START_TAG && parser.getName() == TAG_MEMBER) {
+				String memberName = null;
+				Object memberValue = null;
+				while (parser.nextTag() == XmlPullParser.START_TAG) {
+					String name = parser.getName();
+					if (name == TAG_NAME) {
+						memberName = parser.nextName();
+					} else
+					if (name == TAG_VALUE) {
+						memberValue = deserialize(parser);
+					} else {
+						throw new IOException("Unexpected <" + name + "> in struct member");
+					}
+				}
+				if (memberName != null && memberValue != null) {
+					struct.put(memberName, memberValue);
+				}
+				parser.require(XmlPullParser.END_TAG, null, TAG_MEMBER);
+				parser.nextTag();
+			}
+			parser.require(XmlPullParser.END_TAG, null, TYPE_STRUCT);
+			obj = struct.build();
+		} else
+		if (type == TYPE_DATE_TIME_ISO8601) {
+			int length = readChars(parser);
+			try {
+				obj = XMLRPCDates.parse(parser.textBuffer(), 0, length);
+			} catch (ParseException e) {
+				throw new IOException("Cannot deserialize dateTime " + new String(parser.textBuffer(), 0, length));
+			}
+		} else
+		if (type == TYPE_BASE64) {
+			// decoded in place, line breaks are skipped by the decoder
+			int length = readChars(parser);
+			obj = Base64Coder.decode(parser.textBuffer(), 0, length);
+		} else {
+			throw new IOException("Cannot deserialize " + type);
+		}
+
+		parser.nextTag(); // TAG_VALUE (</value>)
+		parser.require(XmlPullParser.END_TAG, null, TAG_VALUE);
+		return obj;
+	}
+
+	/*
+	 * Reads the text of the current scalar element into the scanner's text buffer and
+	 * returns its length. The parser ends up on the element's end tag.
+	 */
+	private int readChars(XMLRPCScanner parser) throws XmlPullParserException, IOException {
+		if (parser.next() == XmlPullParser.END_TAG) {
+			return 0;
+		}
+		if (parser.getEventType() != XmlPullParser.TEXT) {
+			throw new XmlPullParserException("expected text", parser, null);
+		}
+		// the end tag leaves the text buffer alone
+		int length = parser.textLength();
+		if (parser.next() != XmlPullParser.END_TAG) {
+			throw new XmlPullParserException("END_TAG expected after text", parser, null);
+		}
+		return length;
+	}
+
+	private long readLong(XMLRPCScanner parser) throws XmlPullParserException, IOException {
+		int end = readChars(parser);
+		char[] text = parser.textBuffer();
+		int i = 0;
+		boolean negative = false;
+		if (i < end && (text[i] == '-' || text[i] == '+')) {
+			negative = text[i] == '-';
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("Cannot deserialize number " + new String(text, 0, end));
+		}
+		// accumulate negatively so Long.MIN_VALUE fits
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = text[i] - '0';
+			if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException("Cannot deserialize number " + new String(text, 0, end));
+			}
+			result = result * 10 - digit;
+		}
+		if (!negative) {
+			if (result == Long.MIN_VALUE) {
+				throw new NumberFormatException("Cannot deserialize number " + new String(text, 0, end));
+			}
+			result = -result;
+		}
+		return result;
+	}
+}
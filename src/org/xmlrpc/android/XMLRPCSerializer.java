@@ -1,18 +1,9 @@
 package org.xmlrpc.android;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
@@ -21,83 +12,11 @@ import org.xmlpull.v1.XmlSerializer;
 //import android.util.Log;
 
 class XMLRPCSerializer implements IXMLRPCSerializer {
-	static SimpleDateFormat dateFormat = new SimpleDateFormat(DATETIME_FORMAT);
-
-	@SuppressWarnings("unchecked")
 	public void serialize(XmlSerializer serializer, Object object) throws IOException {
-		// check for scalar types:
-		if (object instanceof Integer || object instanceof Short || object instanceof Byte) {
-			serializer.startTag(null, TYPE_I4).text(object.toString()).endTag(null, TYPE_I4);
-		} else
-		if (object instanceof Long) {
-			serializer.startTag(null, TYPE_I8).text(object.toString()).endTag(null, TYPE_I8);
-		} else
-		if (object instanceof Double || object instanceof Float) {
-			serializer.startTag(null, TYPE_DOUBLE).text(object.toString()).endTag(null, TYPE_DOUBLE);
-		} else
-		if (object instanceof Boolean) {
-			Boolean bool = (Boolean) object;
-			String boolStr = bool.booleanValue() ? "1" : "0";
-			serializer.startTag(null, TYPE_BOOLEAN).text(boolStr).endTag(null, TYPE_BOOLEAN);
-		} else
-		if (object instanceof String) {
-			serializer.startTag(null, TYPE_STRING).text(object.toString()).endTag(null, TYPE_STRING);
-		} else
-		if (object instanceof Date || object instanceof Calendar) {
-			String dateStr = dateFormat.format(object);
-			serializer.startTag(null, TYPE_DATE_TIME_ISO8601).text(dateStr).endTag(null, TYPE_DATE_TIME_ISO8601);
-		} else
-		if (object instanceof byte[] ){
-			String value = new String(Base64Coder.encode((byte[])object));
-			serializer.startTag(null, TYPE_BASE64).text(value).endTag(null, TYPE_BASE64);
-		} else
-		if (object instanceof List) {
-			serializer.startTag(null, TYPE_ARRAY).startTag(null, TAG_DATA);
-			List<Object> list = (List<Object>) object;
-			Iterator<Object> iter = list.iterator();
-			while (iter.hasNext()) {
-				Object o = iter.next();
-				serializer.startTag(null, TAG_VALUE);
-				serialize(serializer, o);
-				serializer.endTag(null, TAG_VALUE);
-			}
-			serializer.endTag(null, TAG_DATA).endTag(null, TYPE_ARRAY);
-		} else
-		if (object instanceof Object[]) {
-			serializer.startTag(null, TYPE_ARRAY).startTag(null, TAG_DATA);
-			Object[] objects = (Object[]) object;
-			for (int i=0; i<objects.length; i++) {
-				Object o = objects[i];
-				serializer.startTag(null, TAG_VALUE);
-				serialize(serializer, o);
-				serializer.endTag(null, TAG_VALUE);
-			}
-			serializer.endTag(null, TAG_DATA).endTag(null, TYPE_ARRAY);
-		} else
-		if (object instanceof Map) {
-			serializer.startTag(null, TYPE_STRUCT);
-			Map<String, Object> map = (Map<String, Object>) object;
-			Iterator<Entry<String, Object>> iter = map.entrySet().iterator();
-			while (iter.hasNext()) {
-				Entry<String, Object> entry = iter.next();
-				String key = entry.getKey();
-				Object value = entry.getValue();
-
-				serializer.startTag(null, TAG_MEMBER);
-				serializer.startTag(null, TAG_NAME).text(key).endTag(null, TAG_NAME);
-				serializer.startTag(null, TAG_VALUE);
-				serialize(serializer, value);
-				serializer.endTag(null, TAG_VALUE);
-				serializer.endTag(null, TAG_MEMBER);
-			}
-			serializer.endTag(null, TYPE_STRUCT);
-		} else
-		if (object instanceof XMLRPCSerializable) {
-			XMLRPCSerializable serializable = (XMLRPCSerializable) object;
-			serialize(serializer, serializable.getSerializable());
-		} else {
-			throw new IOException("Cannot serialize " + object);
+		if (object == null) {
+			throw new IOException("Cannot serialize null");
 		}
+		XMLRPCCodecs.forClass(object.getClass()).serialize(serializer, object, this);
 	}
 	
 	public Object deserialize(XmlPullParser parser) throws XmlPullParserException, IOException {
@@ -144,20 +63,13 @@ class XMLRPCSerializer implements IXMLRPCSerializer {
 			if (typeNodeName.equals(TYPE_DATE_TIME_ISO8601)) {
 				String value = parser.nextText();
 				try {
-					obj = dateFormat.parseObject(value);
+					obj = XMLRPCDates.parse(value);
 				} catch (ParseException e) {
 					throw new IOException("Cannot deserialize dateTime " + value); 
 				}
 			} else
 			if (typeNodeName.equals(TYPE_BASE64)) {
-				String value = parser.nextText();
-				BufferedReader reader = new BufferedReader(new StringReader(value));
-				String line;
-				StringBuffer sb = new StringBuffer();
-				while ((line = reader.readLine()) != null) {
-					sb.append(line);
-				}
-				obj = Base64Coder.decode(sb.toString());
+				obj = readBase64(parser);
 			} else
 			if (typeNodeName.equals(TYPE_ARRAY)) {
 				parser.nextTag(); // TAG_DATA (<data>)
@@ -176,7 +88,7 @@ class XMLRPCSerializer implements IXMLRPCSerializer {
 			} else
 			if (typeNodeName.equals(TYPE_STRUCT)) {
 				parser.nextTag();
-				Map<String, Object> map = new HashMap<String, Object>();
+				XMLRPCStruct.Builder struct = new XMLRPCStruct.Builder();
 				while (parser.getName().equals(TAG_MEMBER)) {
 					String memberName = null;
 					Object memberValue = null;
@@ -193,13 +105,13 @@ class XMLRPCSerializer implements IXMLRPCSerializer {
 						}
 					}
 					if (memberName != null && memberValue != null) {
-						map.put(memberName, memberValue);
+						struct.put(memberName, memberValue);
 					}
 					parser.require(XmlPullParser.END_TAG, null, TAG_MEMBER);
 					parser.nextTag();
 				}
 				parser.require(XmlPullParser.END_TAG, null, TYPE_STRUCT);
-				obj = map;
+				obj = struct.build();
 			} else {
 				throw new IOException("Cannot deserialize " + parser.getName());
 			}
@@ -211,4 +123,23 @@ class XMLRPCSerializer implements IXMLRPCSerializer {
 		parser.require(XmlPullParser.END_TAG, null, TAG_VALUE);
 		return obj;
 	}
+
+	/*
+	 * Decodes the text of a <base64> element as the parser hands it out, however many
+	 * events that takes, without joining it into a string first. The parser ends up on
+	 * </base64>.
+	 */
+	static byte[] readBase64(XmlPullParser parser) throws XmlPullParserException, IOException {
+		Base64Coder.Decoder decoder = new Base64Coder.Decoder();
+		int[] range = new int[2];
+		int event;
+		while ((event = parser.next()) != XmlPullParser.END_TAG) {
+			if (event != XmlPullParser.TEXT) {
+				throw new XmlPullParserException("expected text in base64", parser, null);
+			}
+			char[] text = parser.getTextCharacters(range);
+			decoder.decode(text, range[0], range[1]);
+		}
+		return decoder.finish();
+	}
 }
@@ -12,7 +12,6 @@ import java.net.Socket;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
 
 import android.util.Log;
 
@@ -75,7 +74,7 @@ public class XMLRPCServer extends XMLRPCCommon {
 		// Log.d(Tag.LOG, "xml received:" + xmlRpcText);
 		
 		InputStream inputStream = new ByteArrayInputStream(xmlRpcText.getBytes("UTF-8"));
-		XmlPullParser pullParser = XmlPullParserFactory.newInstance().newPullParser();
+		XmlPullParser pullParser = getParserFactory().newPullParser();
 		Reader streamReader = new InputStreamReader(inputStream);
 		pullParser.setInput(streamReader);
 		return pullParser;
@@ -0,0 +1,207 @@
+package org.xmlrpc.android;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The immutable map deserialized structs are returned as. Members live in three arrays
+ * sorted by the hash of their name and are found by binary search, so a struct holds
+ * no entry objects and no empty table slots. Member names come from XMLRPCMemberNames.
+ */
+public final class XMLRPCStruct extends AbstractMap<String, Object> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int[] hashes;
+	private final String[] keys;
+	private final Object[] values;
+
+	private transient Set<Map.Entry<String, Object>> entries;
+
+	private XMLRPCStruct(int[] hashes, String[] keys, Object[] values) {
+		this.hashes = hashes;
+		this.keys = keys;
+		this.values = values;
+	}
+
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int i = indexOf(key);
+		return i >= 0 ? values[i] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	private int indexOf(Object key) {
+		if (!(key instanceof String)) {
+			return -1;
+		}
+		int hash = key.hashCode();
+		int low = 0;
+		int high = hashes.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (hashes[mid] < hash) {
+				low = mid + 1;
+			} else if (hashes[mid] > hash) {
+				high = mid - 1;
+			} else {
+				// names with the same hash sit next to each other
+				while (mid > 0 && hashes[mid-1] == hash) {
+					mid--;
+				}
+				for (; mid < hashes.length && hashes[mid] == hash; mid++) {
+					if (keys[mid] == key || keys[mid].equals(key)) {
+						return mid;
+					}
+				}
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (entries == null) {
+			entries = new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public int size() {
+					return keys.length;
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new Iterator<Map.Entry<String, Object>>() {
+						private int next;
+
+						public boolean hasNext() {
+							return next < keys.length;
+						}
+
+						public Map.Entry<String, Object> next() {
+							if (next >= keys.length) {
+								throw new NoSuchElementException();
+							}
+							return new Member(next++);
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+		return entries;
+	}
+
+	private final class Member implements Map.Entry<String, Object> {
+		private final int index;
+
+		Member(int index) {
+			this.index = index;
+		}
+
+		public String getKey() {
+			return keys[index];
+		}
+
+		public Object getValue() {
+			return values[index];
+		}
+
+		public Object setValue(Object value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry<?, ?>)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return keys[index].equals(e.getKey())
+				&& (values[index] == null ? e.getValue() == null : values[index].equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return keys[index].hashCode() ^ (values[index] == null ? 0 : values[index].hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return keys[index] + "=" + values[index];
+		}
+	}
+
+	/**
+	 * Collects the members of one struct, a later member replaces an earlier one of the
+	 * same name. Not thread safe.
+	 */
+	public static final class Builder {
+		private int[] hashes = new int[16];
+		private String[] keys = new String[16];
+		private Object[] values = new Object[16];
+		private int size;
+
+		public Builder put(String key, Object value) {
+			if (size == keys.length) {
+				int[] h = new int[size * 2];
+				String[] k = new String[size * 2];
+				Object[] v = new Object[size * 2];
+				System.arraycopy(hashes, 0, h, 0, size);
+				System.arraycopy(keys, 0, k, 0, size);
+				System.arraycopy(values, 0, v, 0, size);
+				hashes = h;
+				keys = k;
+				values = v;
+			}
+			key = XMLRPCMemberNames.intern(key);
+
+			// insertion sort by hash, structs are small
+			int hash = key.hashCode();
+			int i = size;
+			while (i > 0 && hashes[i-1] > hash) {
+				i--;
+			}
+			for (int j = i - 1; j >= 0 && hashes[j] == hash; j--) {
+				if (keys[j].equals(key)) {
+					values[j] = value;
+					return this;
+				}
+			}
+			System.arraycopy(hashes, i, hashes, i + 1, size - i);
+			System.arraycopy(keys, i, keys, i + 1, size - i);
+			System.arraycopy(values, i, values, i + 1, size - i);
+			hashes[i] = hash;
+			keys[i] = key;
+			values[i] = value;
+			size++;
+			return this;
+		}
+
+		public XMLRPCStruct build() {
+			int[] h = new int[size];
+			String[] k = new String[size];
+			Object[] v = new Object[size];
+			System.arraycopy(hashes, 0, h, 0, size);
+			System.arraycopy(keys, 0, k, 0, size);
+			System.arraycopy(values, 0, v, 0, size);
+			return new XMLRPCStruct(h, k, v);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package org.xmlrpc.android;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Binds XML-RPC structs directly onto objects while the response is being pulled.
+ * No map is built for a struct: every member is handed to a Binder together with
+ * this reader, the binder reads the values it wants with the typed read methods and
+ * everything it leaves alone is skipped unread.
+ * 
+ * <p>
+ * Use structOf() or arrayOf() to get an IXMLRPCResultReader for a call whose result is
+ * a struct, or an array of structs. Array readers can also pass every element to an
+ * IXMLRPCElementListener the moment it is complete, so the first ones can be used before
+ * the whole response has arrived.
+ * </p>
+ */
+public final class XMLRPCStructReader {
+
+	/**
+	 * Maps struct members onto one kind of object.
+	 */
+	public interface Binder<T> {
+		/** A fresh object for the next struct. */
+		T newTarget();
+
+		/**
+		 * Called for every member of the struct.  Read the value with one of the read methods,
+		 * or don't read it at all to have it skipped.
+		 */
+		void bindMember(T target, String name, XMLRPCStructReader value) throws XmlPullParserException, IOException;
+
+		/** Called after the last member, returns what goes into the result. */
+		T complete(T target);
+	}
+
+	private final XmlPullParser parser;
+	private final IXMLRPCSerializer serializer;
+	private boolean consumed;
+
+	private XMLRPCStructReader(XmlPullParser parser, IXMLRPCSerializer serializer) {
+		this.parser = parser;
+		this.serializer = serializer;
+	}
+
+	/**
+	 * Result reader for a call returning a single struct.
+	 */
+	public static <T> IXMLRPCResultReader structOf(final Binder<T> binder) {
+		return new IXMLRPCResultReader() {
+			public Object read(XmlPullParser parser, IXMLRPCSerializer serializer) throws XmlPullParserException, IOException {
+				return new XMLRPCStructReader(parser, serializer).readStruct(binder);
+			}
+		};
+	}
+
+	/**
+	 * Result reader for a call returning an array of structs, the result is an Object[]
+	 * holding what the binder completed.
+	 */
+	public static <T> IXMLRPCResultReader arrayOf(Binder<T> binder) {
+		return arrayOf(binder, null);
+	}
+
+	/**
+	 * Same as above, listener gets every element as soon as the binder has completed it.
+	 */
+	public static <T> IXMLRPCResultReader arrayOf(final Binder<T> binder, final IXMLRPCElementListener<? super T> listener) {
+		return new IXMLRPCResultReader() {
+			public Object read(XmlPullParser parser, IXMLRPCSerializer serializer) throws XmlPullParserException, IOException {
+				return new XMLRPCStructReader(parser, serializer).readArray(binder, listener);
+			}
+		};
+	}
+
+	/**
+	 * Result reader for an array of anything, elements are deserialized by the serializer
+	 * and passed to listener one at a time. The result is the same Object[] the serializer
+	 * would have returned.
+	 */
+	public static IXMLRPCResultReader arrayOf(final IXMLRPCElementListener<Object> listener) {
+		return new IXMLRPCResultReader() {
+			public Object read(XmlPullParser parser, IXMLRPCSerializer serializer) throws XmlPullParserException, IOException {
+				return new XMLRPCStructReader(parser, serializer).readArray(null, listener);
+			}
+		};
+	}
+
+	/* Elements are bound with binder, or deserialized when it is null. */
+	@SuppressWarnings("unchecked")
+	private <T> Object[] readArray(Binder<T> binder, IXMLRPCElementListener<? super T> listener) throws XmlPullParserException, IOException {
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		parser.nextTag();
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TYPE_ARRAY);
+		parser.nextTag();
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_DATA);
+
+		ArrayList<T> list = new ArrayList<T>();
+		parser.nextTag();
+		while (parser.getEventType() == XmlPullParser.START_TAG) {
+			T element = binder != null ? readStruct(binder) : (T) serializer.deserialize(parser);
+			list.add(element);
+			if (listener != null) {
+				listener.onElement(list.size() - 1, element);
+			}
+			parser.nextTag();
+		}
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TAG_DATA);
+		parser.nextTag();
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TYPE_ARRAY);
+		parser.nextTag();
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		return list.toArray();
+	}
+
+	private <T> T readStruct(Binder<T> binder) throws XmlPullParserException, IOException {
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		parser.nextTag();
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TYPE_STRUCT);
+
+		T target = binder.newTarget();
+		parser.nextTag();
+		while (parser.getEventType() == XmlPullParser.START_TAG) {
+			parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_MEMBER);
+			parser.nextTag();
+			parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_NAME);
+			String name = parser instanceof XMLRPCScanner
+				? ((XMLRPCScanner) parser).nextName()
+				: XMLRPCMemberNames.intern(parser.nextText());
+			parser.nextTag();
+
+			consumed = false;
+			binder.bindMember(target, name, this);
+			if (!consumed) {
+				skip();
+			}
+
+			parser.nextTag();
+			parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TAG_MEMBER);
+			parser.nextTag();
+		}
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TYPE_STRUCT);
+		parser.nextTag();
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		return binder.complete(target);
+	}
+
+	/** The value as a string, any scalar type is accepted. */
+	public String readString() throws XmlPullParserException, IOException {
+		return readScalar();
+	}
+
+	public int readInt() throws XmlPullParserException, IOException {
+		String value = readScalar();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Cannot deserialize int " + value);
+		}
+	}
+
+	public long readLong() throws XmlPullParserException, IOException {
+		String value = readScalar();
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Cannot deserialize i8 " + value);
+		}
+	}
+
+	public double readDouble() throws XmlPullParserException, IOException {
+		String value = readScalar();
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Cannot deserialize double " + value);
+		}
+	}
+
+	public boolean readBoolean() throws XmlPullParserException, IOException {
+		String value = readScalar();
+		return value.equals("1") || value.equalsIgnoreCase("true");
+	}
+
+	/** The value the way IXMLRPCSerializer.deserialize() returns it, for arrays and structs. */
+	public Object readObject() throws XmlPullParserException, IOException {
+		checkUnread();
+		return serializer.deserialize(parser);
+	}
+
+	/*
+	 * Reads <value>text</value> and <value><type>text</type></value> and leaves the parser
+	 * on </value>.
+	 */
+	private String readScalar() throws XmlPullParserException, IOException {
+		checkUnread();
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+
+		String text = null;
+		int event = parser.next();
+		if (event == XmlPullParser.TEXT) {
+			text = parser.getText();
+			event = parser.next();
+		}
+		if (event == XmlPullParser.END_TAG) {
+			// no type given means string
+			return text != null ? text : "";
+		}
+
+		parser.require(XmlPullParser.START_TAG, null, null);
+		String type = parser.getName();
+		if (type.equals(IXMLRPCSerializer.TYPE_ARRAY) || type.equals(IXMLRPCSerializer.TYPE_STRUCT)) {
+			throw new IOException("Expected a single value, got <" + type + ">");
+		}
+		text = parser.nextText();
+		parser.nextTag();
+		parser.require(XmlPullParser.END_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		return text;
+	}
+
+	private void checkUnread() {
+		if (consumed) {
+			throw new IllegalStateException("Member value was already read");
+		}
+		consumed = true;
+	}
+
+	/* Steps over the whole <value> element without looking at it. */
+	private void skip() throws XmlPullParserException, IOException {
+		parser.require(XmlPullParser.START_TAG, null, IXMLRPCSerializer.TAG_VALUE);
+		int depth = 1;
+		while (depth > 0) {
+			int event = parser.next();
+			if (event == XmlPullParser.START_TAG) {
+				depth++;
+			} else if (event == XmlPullParser.END_TAG) {
+				depth--;
+			} else if (event == XmlPullParser.END_DOCUMENT) {
+				throw new XmlPullParserException("Unexpected end of document in <value>");
+			}
+		}
+	}
+}
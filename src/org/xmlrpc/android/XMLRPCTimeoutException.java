@@ -0,0 +1,22 @@
+package org.xmlrpc.android;
+
+/**
+ * Thrown when a call didn't complete within its deadline: the connection couldn't be made
+ * in time, the server went quiet, or the whole response took too long.
+ */
+public class XMLRPCTimeoutException extends XMLRPCException {
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 3125671934485503961L;
+	private long timeoutMillis;
+
+	public XMLRPCTimeoutException(long timeoutMillis, Exception e) {
+		super("XMLRPC call took longer than " + timeoutMillis + " ms", e);
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+}
@@ -4,13 +4,17 @@
 #
 # Usage: ./tools/update-pandora-api-keys.py /path/to/source/file.h [...]
 #
-# This script is intended to port keys from a C source file to the PandoraKeys.java file
-# used for the Pandoroid project.  Such as the crypt_key_{input,output}.h files in the
-# pianobar/libpiano source.
+# This script is intended to port keys from a C source file to the pandora_keys.bin
+# resource used for the Pandoroid project.  Such as the crypt_key_{input,output}.h files in
+# the pianobar/libpiano source.
+#
+# The blob is a flat list of big endian 32-bit words: out_key_p[18], out_key_s[4*256],
+# in_key_p[18], in_key_s[4*256].  See PandoraKeys.java for the reading side.
 
 import os
 import sys
 import re
+import struct
 
 #init
 if len(sys.argv) < 2:
@@ -22,6 +26,8 @@ if '/tools/' not in sys.argv[0]:
 	sys.exit(1)
 
 key_list = {}
+key_order = ['out_key_p', 'out_key_s', 'in_key_p', 'in_key_s']
+key_sizes = {'p': 18, 's': 4 * 256}
 
 #main
 for kf in sys.argv[1:]:
@@ -46,14 +52,13 @@ for kf in sys.argv[1:]:
 		
 			if '};' in line:
 				#end of key data
-				key_data = re.sub('0x[0-9A-F]{8}', lambda m: "%sL" % m.group(0), key_data)
-			
-				if key_name[-1] == 's':
-					key_data = "public static final long[][] "+ key_name +" = {{\n" + key_data + "\t}};"
-				else:
-					key_data = "public static final long[] "+ key_name +" = {\n" + key_data + "\t};"
+				words = [int(w, 16) for w in re.findall('0x([0-9A-Fa-f]{8})', key_data)]
+				
+				if len(words) != key_sizes[key_name[-1]]:
+					print >> sys.stderr, "%s has %d values, expected %d" % (key_name, len(words), key_sizes[key_name[-1]])
+					sys.exit(1)
 			
-				key_list[key_name] = key_data
+				key_list[key_name] = words
 				state = ''
 		
 			else:
@@ -63,41 +68,7 @@ if len(key_list) != 4:
 	print >> sys.stderr, "Did not get all 4 keys needed.  Only saw: " + repr(key_list.keys())
 
 else:
-	fd = open("src/com/aregner/pandora/PandoraKeys.java", 'w')
-	print >> fd, """/* Pandoroid Radio - open source pandora.com client for android
- * Copyright (C) 2011  Andrew Regner <andrew@aregner.com>
- * 
- * This program is free software; you can redistribute it and/or
- * modify it under the terms of the GNU General Public License
- * as published by the Free Software Foundation; either version 2
- * of the License, or (at your option) any later version.
- * 
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- * 
- * You should have received a copy of the GNU General Public License
- * along with this program; if not, write to the Free Software
- * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
- */
-
-/* 
- * These keys were extracted from the Pithos source code, credited to ZigZagJoe.
- * 
- * Pithos is released under the GNU GPL v3, Copyright (C) 2010 Kevin Mehall <km@kevinmehall.net>
- */
-
-package com.aregner.pandora;
-
-public final class PandoraKeys {
-	%(out_key_p)s
-	
-	%(out_key_s)s
-	
-	%(in_key_p)s
-	
-	%(in_key_s)s
-}
-""" % key_list
+	fd = open("src/com/aregner/pandora/pandora_keys.bin", 'wb')
+	for key_name in key_order:
+		fd.write(struct.pack('>%dI' % len(key_list[key_name]), *key_list[key_name]))
 	fd.close()